@@ -0,0 +1,63 @@
+package facade;
+
+import chess.ChessGame;
+import chess.InvalidMoveException;
+import websocket.commands.UserGameCommand;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveDeltaMessage;
+
+/**
+ * The client's copy of the game it's connected to, kept current from LOAD_GAME and MOVE_DELTA messages.
+ * <p>
+ * A delta is applied to a copy and only kept if the result matches the server's checksum. Anything that
+ * doesn't line up (no board yet, a skipped ply, a move that doesn't work here, a checksum mismatch)
+ * leaves the game alone and asks for a resync, which makes the server send a full LOAD_GAME.
+ */
+public class GameStateTracker {
+    public enum Result {
+        UPDATED,
+        IGNORED, //already had it
+        RESYNC_NEEDED
+    }
+
+    private ChessGame game;
+
+    public synchronized Result onLoadGame(LoadGameMessage message) {
+        game = message.getGame();
+        return Result.UPDATED;
+    }
+
+    public synchronized Result onMoveDelta(MoveDeltaMessage message) {
+        if (game == null) {
+            return Result.RESYNC_NEEDED;
+        }
+        int have = game.getMoveCount();
+        if (message.getPly() <= have) {
+            return Result.IGNORED;
+        }
+        if (message.getPly() != have + 1) {
+            return Result.RESYNC_NEEDED; //missed one
+        }
+
+        ChessGame next = new ChessGame(game);
+        try {
+            next.makeMove(message.getMove());
+        } catch (InvalidMoveException e) {
+            return Result.RESYNC_NEEDED;
+        }
+        if (next.positionChecksum() != message.getChecksum()) {
+            return Result.RESYNC_NEEDED;
+        }
+        game = next;
+        return Result.UPDATED;
+    }
+
+    //null until the first LOAD_GAME
+    public synchronized ChessGame game() {
+        return game;
+    }
+
+    public static UserGameCommand resyncCommand(String authToken, int gameID) {
+        return new UserGameCommand(UserGameCommand.CommandType.RESYNC, authToken, gameID);
+    }
+}
@@ -32,7 +32,13 @@ public class ServerFacade {
     }
 
     public ListGamesResponse listGames(String authToken) throws Exception {
-        return makeRequest("GET", "/game", null, ListGamesResponse.class, authToken);
+        return listGames(authToken, null);
+    }
+
+    //cursor is the nextCursor from the previous page, null for the first page
+    public ListGamesResponse listGames(String authToken, Integer cursor) throws Exception {
+        String path = cursor == null ? "/game" : "/game?cursor=" + cursor;
+        return makeRequest("GET", path, null, ListGamesResponse.class, authToken);
     }
 
     public CreateGameResponse createGame(String gameName, String authToken) throws Exception {
@@ -0,0 +1,84 @@
+package facade;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import websocket.BinaryProtocol;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ErrorMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveDeltaMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Turns commands into frames and frames into server messages, in whichever format the client picked.
+ * JSON is what every server understands. BINARY has to be asked for when connecting (see path()),
+ * after which the server answers in BinaryProtocol binary frames.
+ */
+public class WebSocketCodec {
+    public enum Format {
+        JSON,
+        BINARY
+    }
+
+    private final Format format;
+    private final Gson gson = new Gson();
+
+    public WebSocketCodec(Format format) {
+        this.format = format;
+    }
+
+    public Format format() {
+        return format;
+    }
+
+    //where to connect, with the options this codec needs
+    public String path(boolean moveDeltas) {
+        StringBuilder path = new StringBuilder("/ws");
+        char sep = '?';
+        if (format == Format.BINARY) {
+            path.append(sep).append("format=binary");
+            sep = '&';
+        }
+        if (moveDeltas) {
+            path.append(sep).append("updates=delta");
+        }
+        return path.toString();
+    }
+
+    public String encodeText(UserGameCommand command) {
+        return gson.toJson(command);
+    }
+
+    public ByteBuffer encodeBinary(UserGameCommand command) {
+        return ByteBuffer.wrap(BinaryProtocol.encode(command));
+    }
+
+    public ServerMessage decode(String text) {
+        JsonObject json = JsonParser.parseString(text).getAsJsonObject();
+        ServerMessage.ServerMessageType type = gson.fromJson(json.get("serverMessageType"),
+                ServerMessage.ServerMessageType.class);
+        if (type == null) {
+            throw new IllegalArgumentException("not a server message: " + text);
+        }
+        return switch (type) {
+            case LOAD_GAME -> gson.fromJson(json, LoadGameMessage.class);
+            case ERROR -> gson.fromJson(json, ErrorMessage.class);
+            case NOTIFICATION -> gson.fromJson(json, NotificationMessage.class);
+            case MOVE_DELTA -> gson.fromJson(json, MoveDeltaMessage.class);
+        };
+    }
+
+    public ServerMessage decode(ByteBuffer frame) throws IOException {
+        if (frame.hasArray()) {
+            return BinaryProtocol.decodeMessage(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+        }
+        byte[] copy = new byte[frame.remaining()];
+        frame.duplicate().get(copy);
+        return BinaryProtocol.decodeMessage(copy, 0, copy.length);
+    }
+}
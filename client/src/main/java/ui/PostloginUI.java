@@ -1,6 +1,7 @@
 package ui;
 
 import model.GameData;
+import model.GameSummary;
 import response.CreateGameResponse;
 import response.ListGamesResponse;
 import facade.ServerFacade;
@@ -14,7 +15,8 @@ public class PostloginUI extends UI {
     private final String authToken;
     private final String username;
     private boolean running;
-    private List<GameData> gamesList;
+    private List<GameSummary> gamesList;
+    private Integer nextCursor; //null when the last list showed every game
 
     public PostloginUI(ServerFacade facade, String authToken, String username) {
         super();
@@ -47,7 +49,8 @@ public class PostloginUI extends UI {
         displayMessage("  help - to display available commands");
         displayMessage("  logout - to log out of the current account");
         displayMessage("  create - to create a new game");
-        displayMessage("  list - to list all available games");
+        displayMessage("  list - to list available games");
+        displayMessage("  more - to list the next page of games");
         displayMessage("  join - to join a game as a player");
         displayMessage("  observe - to join a game as an observer");
     }
@@ -66,6 +69,9 @@ public class PostloginUI extends UI {
             case "list":
                 listGames();
                 break;
+            case "more":
+                listMoreGames();
+                break;
             case "join":
                 playGame();
                 break;
@@ -110,25 +116,50 @@ public class PostloginUI extends UI {
     private void listGames() {
         try {
             ListGamesResponse response = facade.listGames(authToken);
-            gamesList = response.games();
+            gamesList = new ArrayList<>(response.games());
+            nextCursor = response.nextCursor();
 
             if (gamesList.isEmpty()) {
                 displayMessage("No games available.");
             } else {
                 displayMessage("\nAvailable games:");
-                int index = 1; //index to display game list
-                for (GameData game : gamesList) {
-                    String whitePlayer = game.whiteUsername() != null ? game.whiteUsername() : "EMPTY";
-                    String blackPlayer = game.blackUsername() != null ? game.blackUsername() : "EMPTY";
-                    displayMessage(index + ". " + game.gameName() + " (White: " + whitePlayer + ", Black: " + blackPlayer + ")");
-                    index++;
-                }
+                displayGames(0);
             }
         } catch (Exception e) {
             displayErrorMessage("Failed to list games: " + e.getMessage());
         }
     }
 
+    //next page gets added to the list so the numbers keep going
+    private void listMoreGames() {
+        if (nextCursor == null) {
+            displayMessage("No more games. Use 'list' to refresh the games list.");
+            return;
+        }
+
+        try {
+            ListGamesResponse response = facade.listGames(authToken, nextCursor);
+            int firstNew = gamesList.size();
+            gamesList.addAll(response.games());
+            nextCursor = response.nextCursor();
+            displayGames(firstNew);
+        } catch (Exception e) {
+            displayErrorMessage("Failed to list games: " + e.getMessage());
+        }
+    }
+
+    private void displayGames(int from) {
+        for (int i = from; i < gamesList.size(); i++) {
+            GameSummary game = gamesList.get(i);
+            String whitePlayer = game.whiteUsername() != null ? game.whiteUsername() : "EMPTY";
+            String blackPlayer = game.blackUsername() != null ? game.blackUsername() : "EMPTY";
+            displayMessage((i + 1) + ". " + game.gameName() + " (White: " + whitePlayer + ", Black: " + blackPlayer + ")");
+        }
+        if (nextCursor != null) {
+            displayMessage("There are more games. Use 'more' to see them.");
+        }
+    }
+
     private void playGame() {
         if (gamesList == null || gamesList.isEmpty()) {
             displayMessage("No games available. Use 'list' command to refresh the games list.");
@@ -145,13 +176,8 @@ public class PostloginUI extends UI {
                 return;
             }
 
-            //for getting the  actual GameData using list index
-            GameData selectedGame = gamesList.get(listIndex - 1);
-
-            if (selectedGame.game() == null) {
-                displayErrorMessage("The board could not be generated due to no available game data.");
-                return;
-            }
+            //for getting the actual game using list index
+            GameSummary selectedGame = gamesList.get(listIndex - 1);
 
             String color = promptUser("Color (WHITE/BLACK): ").toUpperCase().trim();
             if (!color.equals("WHITE") && !color.equals("BLACK")) {
@@ -171,8 +197,11 @@ public class PostloginUI extends UI {
 
             displayMessage("You successfully joined the game as the " + color + " player.");
 
+            //the list only has summaries, so get the board now
+            GameData joinedGame = facade.getGame(gameID, authToken);
+
             ChessBoardUI chessboardUI = new ChessBoardUI();
-            chessboardUI.drawBoard(color.equals("WHITE"), selectedGame.game());
+            chessboardUI.drawBoard(color.equals("WHITE"), joinedGame.game());
 
             promptUser("\nPress Enter to go back to the menu...");
 
@@ -199,15 +228,10 @@ public class PostloginUI extends UI {
                 displayErrorMessage("Invalid game number. Use the number shown in the list.");
                 return;
             }
-            //now maps list number to the correct GameData and extract the real game id
-            GameData selectedGame = gamesList.get(listIndex - 1);
+            //now maps list number to the correct game and extract the real game id
+            GameSummary selectedGame = gamesList.get(listIndex - 1);
             int gameID = selectedGame.gameID();
 
-            if (selectedGame.game() == null) {
-                displayErrorMessage("The board could not be generated due to no available game data.");
-                return;
-            }
-
             //null color for observer.
             facade.joinGame(null, gameID, authToken);
             GameData updatedGame = facade.getGame(gameID, authToken);
@@ -0,0 +1,77 @@
+package client;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import facade.GameStateTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveDeltaMessage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStateTrackerTests {
+    private static final ChessMove E4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+    private static final ChessMove E5 = new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null);
+
+    private GameStateTracker tracker;
+    private ChessGame server;
+
+    @BeforeEach
+    public void setUp() {
+        tracker = new GameStateTracker();
+        server = new ChessGame();
+        tracker.onLoadGame(new LoadGameMessage(new ChessGame(server), null));
+    }
+
+    @Test
+    public void testDeltaApplied() throws Exception {
+        assertEquals(GameStateTracker.Result.UPDATED, tracker.onMoveDelta(move(E4)));
+        assertEquals(GameStateTracker.Result.UPDATED, tracker.onMoveDelta(move(E5)));
+
+        assertEquals(server.getBoard(), tracker.game().getBoard());
+        assertEquals(ChessGame.TeamColor.WHITE, tracker.game().getTeamTurn());
+    }
+
+    @Test
+    public void testDeltaAfterLoadGameOverTheWire() throws Exception {
+        move(E4);
+        Gson gson = new Gson();
+        String json = gson.toJson(new LoadGameMessage(new ChessGame(server), null));
+        tracker.onLoadGame(gson.fromJson(json, LoadGameMessage.class));
+
+        assertEquals(GameStateTracker.Result.UPDATED, tracker.onMoveDelta(move(E5)));
+    }
+
+    @Test
+    public void testRepeatedDeltaIgnored() throws Exception {
+        MoveDeltaMessage delta = move(E4);
+        tracker.onMoveDelta(delta);
+
+        assertEquals(GameStateTracker.Result.IGNORED, tracker.onMoveDelta(delta));
+        assertEquals(1, tracker.game().getMoveCount());
+    }
+
+    @Test
+    public void testSkippedPlyNeedsResync() throws Exception {
+        move(E4); //the client never hears about this one
+        assertEquals(GameStateTracker.Result.RESYNC_NEEDED, tracker.onMoveDelta(move(E5)));
+        assertEquals(0, tracker.game().getMoveCount());
+    }
+
+    @Test
+    public void testChecksumMismatchNeedsResync() {
+        MoveDeltaMessage wrong = new MoveDeltaMessage(E4, 1, MoveDeltaMessage.GameStatus.IN_PROGRESS, 0);
+        assertEquals(GameStateTracker.Result.RESYNC_NEEDED, tracker.onMoveDelta(wrong));
+        assertEquals(new ChessGame().getBoard(), tracker.game().getBoard());
+    }
+
+    //plays the move on the server's copy and builds the delta it would send
+    private MoveDeltaMessage move(ChessMove move) throws Exception {
+        server.makeMove(move);
+        return new MoveDeltaMessage(move, server.getMoveCount(), MoveDeltaMessage.GameStatus.IN_PROGRESS,
+                server.positionChecksum());
+    }
+}
@@ -0,0 +1,132 @@
+package client;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import facade.ServerFacade;
+import facade.WebSocketCodec;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import server.Server;
+import websocket.BinaryProtocol;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveDeltaMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import javax.websocket.ContainerProvider;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebSocketCodecTests {
+    private static Server server;
+    private static ServerFacade facade;
+    private static int port;
+
+    private final WebSocketCodec binary = new WebSocketCodec(WebSocketCodec.Format.BINARY);
+
+    @BeforeAll
+    public static void init() {
+        server = new Server();
+        port = server.run(0);
+        facade = new ServerFacade(port);
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testBinaryGameKeepsHistory() throws Exception {
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        game.makeMove(move(7, 4, 5, 4));
+        game.makeMove(move(4, 5, 5, 4));
+
+        ByteBuffer frame = ByteBuffer.wrap(BinaryProtocol.encode(new LoadGameMessage(game, ChessGame.TeamColor.BLACK)));
+        LoadGameMessage decoded = (LoadGameMessage) binary.decode(frame);
+
+        assertEquals(game.getBoard(), decoded.getGame().getBoard());
+        assertEquals(ChessGame.TeamColor.BLACK, decoded.getGame().getTeamTurn());
+        assertEquals(game.getMoveHistory(), decoded.getGame().getMoveHistory());
+        assertEquals(ChessGame.TeamColor.BLACK, decoded.getPerspective());
+        assertEquals(game.positionChecksum(), decoded.getGame().positionChecksum());
+    }
+
+    @Test
+    public void testBinaryDeltaAndPromotion() throws Exception {
+        ChessMove promote = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 1), ChessPiece.PieceType.KNIGHT);
+        MoveDeltaMessage delta = new MoveDeltaMessage(promote, 41, MoveDeltaMessage.GameStatus.CHECK, 0xFEDCBA98L);
+
+        MoveDeltaMessage decoded = (MoveDeltaMessage) binary.decode(ByteBuffer.wrap(BinaryProtocol.encode(delta)));
+
+        assertEquals(promote, decoded.getMove());
+        assertEquals(41, decoded.getPly());
+        assertEquals(MoveDeltaMessage.GameStatus.CHECK, decoded.getStatus());
+        assertEquals(0xFEDCBA98L, decoded.getChecksum());
+    }
+
+    @Test
+    public void testTruncatedFrameRejected() {
+        byte[] whole = BinaryProtocol.encode(new NotificationMessage("a move was made"));
+        assertThrows(Exception.class, () -> binary.decode(ByteBuffer.wrap(whole, 0, whole.length - 3)));
+    }
+
+    @Test
+    public void testBinaryClientPlaysAgainstServer() throws Exception {
+        facade.clearDatabase();
+        String token = facade.register("binary", "pw", "b@x.com").authToken();
+        int gameID = facade.createGame("binary game", token).gameID();
+        facade.joinGame("WHITE", gameID, token);
+
+        BlockingQueue<ServerMessage> received = new LinkedBlockingQueue<>();
+        Session session = ContainerProvider.getWebSocketContainer().connectToServer(new Endpoint() {
+            @Override
+            public void onOpen(Session session, EndpointConfig config) {
+                session.addMessageHandler(ByteBuffer.class, (MessageHandler.Whole<ByteBuffer>) frame -> {
+                    try {
+                        received.add(binary.decode(frame));
+                    } catch (Exception e) {
+                        received.add(new NotificationMessage("undecodable: " + e.getMessage()));
+                    }
+                });
+                session.addMessageHandler(String.class, (MessageHandler.Whole<String>) text ->
+                        received.add(new NotificationMessage("got text: " + text)));
+            }
+        }, URI.create("ws://localhost:" + port + binary.path(false)));
+
+        try {
+            session.getBasicRemote().sendBinary(binary.encodeBinary(
+                    new UserGameCommand(UserGameCommand.CommandType.CONNECT, token, gameID)));
+            ServerMessage loaded = received.poll(5, TimeUnit.SECONDS);
+            assertInstanceOf(LoadGameMessage.class, loaded);
+
+            session.getBasicRemote().sendBinary(binary.encodeBinary(
+                    new MakeMoveCommand(token, gameID, move(2, 5, 4, 5))));
+            LoadGameMessage moved = (LoadGameMessage) received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(moved);
+            assertEquals(1, moved.getGame().getMoveCount());
+            assertEquals(ChessGame.TeamColor.BLACK, moved.getGame().getTeamTurn());
+        } finally {
+            session.close();
+        }
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
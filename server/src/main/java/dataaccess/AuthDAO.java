@@ -3,10 +3,16 @@ package dataaccess;
 //They should perform operations like creating, reading, updating, and deleting users and authentication tokens
 import model.AuthData;
 
+import java.util.concurrent.TimeUnit;
+
 //Authorizer
 public interface AuthDAO {
+    long DEFAULT_TOKEN_LIFETIME_MILLIS = TimeUnit.HOURS.toMillis(24);
+
     String makeAuth(String username) throws DataAccessException;
-    AuthData getAuth(String authToken) throws DataAccessException;
+    AuthData getAuth(String authToken) throws DataAccessException; //expired tokens are treated as not found
     void deleteAuth(String authToken) throws DataAccessException;
+    //removes at most limit tokens that expired before nowMillis and returns how many went
+    int deleteExpired(long nowMillis, int limit) throws DataAccessException;
     void clear();
-}
\ No newline at end of file
+}
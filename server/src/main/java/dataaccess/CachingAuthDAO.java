@@ -0,0 +1,181 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache in front of another AuthDAO.
+ * <p>
+ * Tokens are split over a few lock stripes, each one a small LRU map, so the cache stays bounded
+ * and lookups on different tokens don't fight over one lock. Good tokens are kept for the TTL and
+ * unknown tokens are remembered for a shorter time so junk tokens don't hit the database every time.
+ * deleteAuth and clear take effect right away.
+ */
+public class CachingAuthDAO implements AuthDAO {
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    public static final long DEFAULT_NEGATIVE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final int STRIPES = 16;
+
+    private final AuthDAO delegate;
+    private final Stripe[] stripes;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    //bumped on every delete/clear. a lookup that raced one of those doesn't get cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingAuthDAO(AuthDAO delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS);
+    }
+
+    public CachingAuthDAO(AuthDAO delegate, int maxEntries, long ttlMillis, long negativeTtlMillis) {
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+
+        int stripeCount = Math.max(1, Math.min(STRIPES, maxEntries));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(Math.max(1, maxEntries / stripeCount));
+        }
+    }
+
+    @Override
+    public String makeAuth(String username) throws DataAccessException {
+        String authToken = delegate.makeAuth(username);
+        //a new login is usually followed by requests with that token, so warm it up.
+        //the delegate may have given it a lifetime we don't know about, so only for a short while
+        cache(authToken, new CachedAuth(new AuthData(authToken, username), System.nanoTime() + negativeTtlNanos));
+        return authToken;
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return delegate.getAuth(null); //nothing to key on, let the real DAO reject it
+        }
+
+        long now = System.nanoTime();
+        CachedAuth cached = lookup(authToken);
+        if (cached != null && now - cached.expiresAt < 0) {
+            if (cached.auth == null) {
+                throw new UnauthorizedException("Error: auth token not found: " + authToken);
+            }
+            return cached.auth;
+        }
+
+        long invalidationsBefore = invalidations.get();
+        try {
+            AuthData auth = delegate.getAuth(authToken);
+            cacheIfUnchanged(authToken, new CachedAuth(auth, now + ttlFor(auth)), invalidationsBefore);
+            return auth;
+        } catch (UnauthorizedException e) {
+            cacheIfUnchanged(authToken, new CachedAuth(null, now + negativeTtlNanos), invalidationsBefore);
+            throw e;
+        }
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        try {
+            delegate.deleteAuth(authToken);
+        } finally {
+            //after the delete so a lookup that read the row just before it can't cache it again
+            invalidate(authToken);
+        }
+    }
+
+    @Override
+    public int deleteExpired(long nowMillis, int limit) throws DataAccessException {
+        //cached tokens never outlive their expiry (see ttlFor) so there is nothing to invalidate here
+        return delegate.deleteExpired(nowMillis, limit);
+    }
+
+    @Override
+    public void clear() {
+        try {
+            delegate.clear();
+        } finally {
+            invalidations.incrementAndGet();
+            for (Stripe stripe : stripes) {
+                stripe.clear();
+            }
+        }
+    }
+
+    //drop a single token, e.g. one that another server logged out
+    public void invalidate(String authToken) {
+        invalidations.incrementAndGet();
+        if (authToken != null) {
+            stripeFor(authToken).remove(authToken);
+        }
+    }
+
+    //never keep a token past the point where the real DAO would start rejecting it
+    private long ttlFor(AuthData auth) {
+        long untilExpiryMillis = auth.expiresAt() - System.currentTimeMillis();
+        if (untilExpiryMillis >= TimeUnit.NANOSECONDS.toMillis(ttlNanos)) {
+            return ttlNanos;
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, untilExpiryMillis));
+    }
+
+    private CachedAuth lookup(String authToken) {
+        return stripeFor(authToken).get(authToken);
+    }
+
+    private void cache(String authToken, CachedAuth entry) {
+        stripeFor(authToken).put(authToken, entry);
+    }
+
+    private void cacheIfUnchanged(String authToken, CachedAuth entry, long invalidationsBefore) {
+        Stripe stripe = stripeFor(authToken);
+        synchronized (stripe) {
+            if (invalidations.get() == invalidationsBefore) {
+                stripe.put(authToken, entry);
+            }
+        }
+    }
+
+    private Stripe stripeFor(String authToken) {
+        int hash = authToken.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    //auth == null means the token is known to be bad
+    private record CachedAuth(AuthData auth, long expiresAt) {}
+
+    //access ordered LinkedHashMap so the eldest entry is the least recently used one
+    private static class Stripe {
+        private final Map<String, CachedAuth> entries;
+
+        Stripe(int capacity) {
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedAuth> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized CachedAuth get(String authToken) {
+            return entries.get(authToken);
+        }
+
+        synchronized void put(String authToken, CachedAuth entry) {
+            entries.put(authToken, entry);
+        }
+
+        synchronized void remove(String authToken) {
+            entries.remove(authToken);
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package dataaccess;
+//game was updated by someone else since it was read (optimistic concurrency). re-read and retry
+public class ConflictException extends DataAccessException {
+  public ConflictException(String message) {
+    super(message);
+  }
+}
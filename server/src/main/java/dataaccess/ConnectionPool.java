@@ -0,0 +1,161 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Small fixed-size pool of MySQL connections.
+ * <p>
+ * The DAOs open and close a connection around every statement. Handing out the same physical
+ * connections again is what makes the driver's per-connection prepared statement cache pay off,
+ * since a cached statement only lives as long as its connection. Callers still just close() what
+ * they get; that returns the connection to the pool instead of closing it.
+ */
+public class ConnectionPool {
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+    //idle connections older than this get checked before reuse, the server may have dropped them
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final String catalog;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<Idle> idle = new LinkedBlockingDeque<>();
+    //set by closeIdle, so connections that were out at the time get closed when they come back
+    private volatile boolean closing;
+
+    public ConnectionPool(String url, String user, String password, String catalog, int maxSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.catalog = catalog;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public Connection borrow() throws SQLException {
+        closing = false; //in use again, e.g. a new server in the same JVM
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLException("timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted waiting for a database connection");
+        }
+
+        try {
+            return wrap(takeOrOpen());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    //closes the idle connections. ones that are out get closed when they come back
+    public void closeIdle() {
+        closing = true;
+        Idle entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry.conn);
+        }
+    }
+
+    private Connection takeOrOpen() throws SQLException {
+        Idle entry;
+        //most recently used first, it's the one most likely to still be good
+        while ((entry = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - entry.since < VALIDATE_AFTER_IDLE_MILLIS || entry.conn.isValid(2)) {
+                return entry.conn;
+            }
+            closeQuietly(entry.conn);
+        }
+        Connection conn = DriverManager.getConnection(url, user, password);
+        conn.setCatalog(catalog);
+        return conn;
+    }
+
+    private void giveBack(Connection conn) {
+        try {
+            //don't hand the next caller someone else's open transaction
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (closing) {
+                closeQuietly(conn);
+            } else {
+                idle.offerFirst(new Idle(conn, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            closeQuietly(conn); //broken, let a new one be opened in its place
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Connection wrap(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new Lease(conn));
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+            //nothing useful to do
+        }
+    }
+
+    private record Idle(Connection conn, long since) {}
+
+    //what callers actually hold. close() gives the connection back, anything after that is an error
+    private class Lease implements InvocationHandler {
+        private final Connection conn;
+        private boolean returned;
+
+        Lease(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        giveBack(conn);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || conn.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("connection was already returned to the pool");
+                    }
+                }
+            }
+            try {
+                return method.invoke(conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -8,6 +8,16 @@ import java.sql.SQLException;
 import java.util.UUID;
 
 public class DBAuthDAO implements AuthDAO {
+    private final long tokenLifetimeMillis;
+
+    public DBAuthDAO() {
+        this(DEFAULT_TOKEN_LIFETIME_MILLIS);
+    }
+
+    public DBAuthDAO(long tokenLifetimeMillis) {
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+    }
+
     //Reusing MySQL structure from my DBuserDAO
     @Override
     public String makeAuth(String username) throws DataAccessException {
@@ -17,13 +27,16 @@ public class DBAuthDAO implements AuthDAO {
 
         String authToken = UUID.randomUUID().toString();
         //db equivalent to my hashmap in mem dao
-        String sql = "INSERT INTO auth (authToken, username) VALUES (?, ?)";
+        String sql = "INSERT INTO auth (authToken, username, issuedAt, expiresAt) VALUES (?, ?, ?, ?)";
+        long issuedAt = System.currentTimeMillis();
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, authToken);
             stmt.setString(2, username);
+            stmt.setLong(3, issuedAt);
+            stmt.setLong(4, issuedAt + tokenLifetimeMillis);
             stmt.executeUpdate(); //add to storage. like users.put in mem dao
 
             return authToken;
@@ -34,19 +47,22 @@ public class DBAuthDAO implements AuthDAO {
 
     @Override
     public AuthData getAuth(String authToken) throws DataAccessException {
-        String sql = "SELECT authToken, username FROM auth WHERE authToken = ?";
+        //expiry is checked in the same query so an expired token costs no extra round trip
+        String sql = "SELECT authToken, username, expiresAt FROM auth WHERE authToken = ? AND expiresAt > ?";
         //Reusing getUser structure
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, authToken);
+            stmt.setLong(2, System.currentTimeMillis());
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     String storedAuthToken = rs.getString("authToken");
                     String storedUsername = rs.getString("username");
+                    long expiresAt = rs.getLong("expiresAt");
 
-                    return new AuthData(storedAuthToken, storedUsername); //if they are all equal, return them
+                    return new AuthData(storedAuthToken, storedUsername, expiresAt); //if they are all equal, return them
                 } else {
                     throw new UnauthorizedException("Error: auth token not found: " + authToken); //my mem err
                 }
@@ -75,6 +91,22 @@ public class DBAuthDAO implements AuthDAO {
         }
     }
 
+    @Override
+    public int deleteExpired(long nowMillis, int limit) throws DataAccessException {
+        //walks the expiresAt index and stops after limit rows so each delete only holds locks briefly
+        String sql = "DELETE FROM auth WHERE expiresAt <= ? ORDER BY expiresAt LIMIT ?";
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, nowMillis);
+            stmt.setInt(2, limit);
+            return stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: " + e.getMessage());
+        }
+    }
+
     @Override
     public void clear() {
         String sql = "DELETE FROM auth";
@@ -1,16 +1,30 @@
 package dataaccess;
 
 import model.GameData;
+import model.GameSummary;
 import chess.ChessGame;
 import com.google.gson.Gson;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 public class DBGameDAO implements GameDAO {
+    //finishedAt is stamped the first time a game is saved as over, that's what the archiver ages games by
+    private static final String UPDATE_SQL = "UPDATE game SET whiteUsername = ?, blackUsername = ?, gameName = ?, " +
+            "game = ?, gameOver = ?, finishedAt = CASE WHEN ? THEN IF(finishedAt = 0, ?, finishedAt) ELSE 0 END, " +
+            "version = version + 1 WHERE gameID = ? AND version = ?";
+
     private final Gson gson;
 
     public DBGameDAO() {
@@ -25,47 +39,34 @@ public class DBGameDAO implements GameDAO {
 
         ChessGame newGame = new ChessGame();
         String gameJson = gson.toJson(newGame); //ChessGame converted to json
-        int newGameId = getNextGameId(); //new game ID
-        String sql = "INSERT INTO game (gameID, whiteUsername, blackUsername, gameName, game, gameOver) VALUES (?, ?, ?, ?, ?, ?)";
+        //gameID is AUTO_INCREMENT so the database hands out ids, one round trip and no races
+        String sql = "INSERT INTO game (whiteUsername, blackUsername, gameName, game, gameOver) VALUES (?, ?, ?, ?, ?)";
 
         try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            stmt.setInt(1, newGameId);
+            stmt.setString(1, null);
             stmt.setString(2, null);
-            stmt.setString(3, null);
-            stmt.setString(4, gameName);
-            stmt.setString(5, gameJson);
-            stmt.setBoolean(6, false);
+            stmt.setString(3, gameName);
+            stmt.setString(4, gameJson);
+            stmt.setBoolean(5, false);
             stmt.executeUpdate();
 
-            return newGameId;
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+                throw new DataAccessException("Error creating game: no game ID generated");
+            }
 
         } catch (SQLException e) {
             throw new DataAccessException("Error creating game: " + e.getMessage());
         }
     }
 
-    private int getNextGameId() throws DataAccessException {
-        String sql = "SELECT MAX(gameID) FROM game";
-
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-
-            if (rs.next()) {
-                int maxID = rs.getInt(1);
-                return maxID + 1;
-            }
-            return 1;
-        } catch (SQLException e) {
-            throw new DataAccessException("Error: Couldnt get next game ID: " + e.getMessage());
-        }
-    }
-
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        String sql = "SELECT gameID, whiteUsername, blackUsername, gameName, game, gameOver FROM game WHERE gameID = ?";
+        String sql = "SELECT gameID, whiteUsername, blackUsername, gameName, game, gameOver, version FROM game WHERE gameID = ?";
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -80,20 +81,50 @@ public class DBGameDAO implements GameDAO {
                     String gameJson = rs.getString("game");
                     boolean gameOver = rs.getBoolean("gameOver");
 
-                    ChessGame game = gson.fromJson(gameJson, ChessGame.class);
-                    return new GameData(id, whiteUsername, blackUsername, gameName, game, gameOver);
-                } else {
-                    throw new DataAccessException("Couldn't find game with ID: " + gameID);
+                    //the board is parsed the first time someone asks for it, most callers never do
+                    return GameData.fromStoredGame(id, whiteUsername, blackUsername, gameName, gameJson, gameOver,
+                            rs.getInt("version"));
                 }
             }
+            //not live, maybe it finished a while ago
+            GameData archived = getArchivedGame(conn, gameID);
+            if (archived == null) {
+                throw new NotFoundException("Error: couldn't find game with ID: " + gameID);
+            }
+            return archived;
         } catch (SQLException e) {
             throw new DataAccessException("Error: retrieving game... " + e.getMessage());
         }
     }
 
+    @Override
+    public GameSummary getGameSummary(int gameID) throws DataAccessException {
+        //leaves the game column out, it's most of the row
+        String sql = "SELECT gameID, whiteUsername, blackUsername, gameName, gameOver FROM game WHERE gameID = ?";
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, gameID);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new GameSummary(
+                            rs.getInt("gameID"),
+                            rs.getString("whiteUsername"),
+                            rs.getString("blackUsername"),
+                            rs.getString("gameName"),
+                            rs.getBoolean("gameOver"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: retrieving game... " + e.getMessage());
+        }
+        return GameSummary.of(getGame(gameID)); //archived or missing, getGame sorts out which
+    }
+
     @Override
     public List<GameData> listGames() throws DataAccessException {
-        String sql = "SELECT gameId, whiteUsername, blackUsername, gameName, game, gameOver FROM game";
+        String sql = "SELECT gameId, whiteUsername, blackUsername, gameName, game, gameOver, version FROM game";
         List<GameData> games = new ArrayList<>();
 
         try (Connection conn = DatabaseManager.getConnection();
@@ -108,8 +139,8 @@ public class DBGameDAO implements GameDAO {
                 String gameJson = rs.getString("game");
                 boolean gameOver = rs.getBoolean("gameOver");
 
-                ChessGame game = gson.fromJson(gameJson, ChessGame.class);
-                games.add(new GameData(id, whiteUsername, blackUsername, gameName, game, gameOver));
+                games.add(GameData.fromStoredGame(id, whiteUsername, blackUsername, gameName, gameJson, gameOver,
+                        rs.getInt("version")));
             }
             return games;
 
@@ -119,23 +150,83 @@ public class DBGameDAO implements GameDAO {
     }
 
     @Override
-    public void updateGame(GameData updatedGame) throws DataAccessException {
-        String sql = "UPDATE game SET whiteUsername = ?, blackUsername = ?, gameName = ?, game = ?, gameOver = ? WHERE gameID = ?";
+    public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        //only the summary columns, the game JSON never leaves the database
+        String select = "SELECT gameID, whiteUsername, blackUsername, gameName, gameOver FROM game";
+        List<Object> params = new ArrayList<>();
+        String sql;
+
+        if (query.player() == null) {
+            sql = select + filters(query, params) + " ORDER BY gameID LIMIT ?";
+            params.add(query.limit());
+        } else {
+            //an OR across the two seat columns can't use either index well, so one index range per seat
+            String white = select + filters(query, params) + " AND whiteUsername = ? ORDER BY gameID LIMIT ?";
+            params.add(query.player());
+            params.add(query.limit());
+            String black = select + filters(query, params) + " AND blackUsername = ? ORDER BY gameID LIMIT ?";
+            params.add(query.player());
+            params.add(query.limit());
+            sql = "(" + white + ") UNION (" + black + ") ORDER BY gameID LIMIT ?";
+            params.add(query.limit());
+        }
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            String gameJson = gson.toJson(updatedGame.game());
 
-            stmt.setString(1, updatedGame.whiteUsername());
-            stmt.setString(2, updatedGame.blackUsername());
-            stmt.setString(3, updatedGame.gameName());
-            stmt.setString(4, gameJson);
-            stmt.setBoolean(5, updatedGame.gameOver());
-            stmt.setInt(6, updatedGame.gameID());
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+
+            List<GameSummary> games = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    games.add(new GameSummary(
+                            rs.getInt("gameID"),
+                            rs.getString("whiteUsername"),
+                            rs.getString("blackUsername"),
+                            rs.getString("gameName"),
+                            rs.getBoolean("gameOver")));
+                }
+            }
+            return games;
+
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: Could not list game... " + e.getMessage());
+        }
+    }
+
+    //WHERE clause for everything but the player filter, adds its parameters to params
+    private String filters(GameQuery query, List<Object> params) {
+        StringBuilder where = new StringBuilder(" WHERE gameID > ?");
+        params.add(query.afterGameID());
+        if (query.openSeatsOnly()) {
+            where.append(" AND (whiteUsername IS NULL OR blackUsername IS NULL)");
+        }
+        if (query.finished() != null) {
+            where.append(" AND gameOver = ?");
+            params.add(query.finished());
+        }
+        return where.toString();
+    }
+
+    @Override
+    public void updateGame(GameData updatedGame) throws DataAccessException {
+        //only goes through if nobody else changed the row since updatedGame's version was read
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+            setUpdateParams(stmt, updatedGame, System.currentTimeMillis());
 
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected == 0) {
-                throw new DataAccessException("Erorr: No game found with ID..." + updatedGame.gameID());
+                //the game doesn't exist, was archived, or the version moved on. only the last one is worth retrying
+                if (getArchivedGame(conn, updatedGame.gameID()) != null) {
+                    throw new ForbiddenException("Error: game " + updatedGame.gameID() + " is archived and can't be changed");
+                }
+                if (!isLive(conn, updatedGame.gameID())) {
+                    throw new NotFoundException("Error: couldn't find game with ID: " + updatedGame.gameID());
+                }
+                throw new ConflictException("Error: game " + updatedGame.gameID() + " was changed by someone else");
             }
         } catch (SQLException e) {
             throw new DataAccessException("Error: Could not update game... " + e.getMessage());
@@ -143,13 +234,224 @@ public class DBGameDAO implements GameDAO {
     }
 
     @Override
-    public void clear() {
-        String sql = "DELETE FROM game";
+    public List<Integer> createGames(List<String> gameNames) throws DataAccessException {
+        for (String gameName : gameNames) {
+            if (gameName == null || gameName.trim().isEmpty()) {
+                throw new BadRequestException("Game name can't be empty!");
+            }
+        }
+        if (gameNames.isEmpty()) {
+            return List.of();
+        }
 
+        String gameJson = gson.toJson(new ChessGame()); //every new game starts from the same board
+        String sql = "INSERT INTO game (whiteUsername, blackUsername, gameName, game, gameOver) VALUES (?, ?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (String gameName : gameNames) {
+                    stmt.setString(1, null);
+                    stmt.setString(2, null);
+                    stmt.setString(3, gameName);
+                    stmt.setString(4, gameJson);
+                    stmt.setBoolean(5, false);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                List<Integer> ids = new ArrayList<>();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getInt(1));
+                    }
+                }
+                if (ids.size() != gameNames.size()) {
+                    conn.rollback();
+                    throw new DataAccessException("Error creating games: expected " + gameNames.size() +
+                            " ids, got " + ids.size());
+                }
+                conn.commit();
+                return ids;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error creating games: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void updateGames(Collection<GameData> updatedGames) throws DataAccessException {
+        if (updatedGames.isEmpty()) {
+            return;
+        }
+        List<GameData> batch = new ArrayList<>(updatedGames);
+        long now = System.currentTimeMillis();
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+                for (GameData game : batch) {
+                    setUpdateParams(stmt, game, now);
+                    stmt.addBatch();
+                }
+
+                int[] counts = stmt.executeBatch();
+                List<Integer> conflicts = new ArrayList<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        conflicts.add(batch.get(i).gameID());
+                    }
+                }
+                if (!conflicts.isEmpty()) {
+                    conn.rollback();
+                    throw new ConflictException("Error: games " + conflicts + " were changed by someone else or don't exist");
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error: Could not update games... " + e.getMessage());
+        }
+    }
+
+    private void setUpdateParams(PreparedStatement stmt, GameData game, long now) throws SQLException {
+        stmt.setString(1, game.whiteUsername());
+        stmt.setString(2, game.blackUsername());
+        stmt.setString(3, game.gameName());
+        //a board nobody parsed can't have changed, so it goes back exactly as it came
+        String storedJson = game.storedGameJson();
+        stmt.setString(4, storedJson != null ? storedJson : gson.toJson(game.game()));
+        stmt.setBoolean(5, game.gameOver());
+        stmt.setBoolean(6, game.gameOver());
+        stmt.setLong(7, now);
+        stmt.setInt(8, game.gameID());
+        stmt.setInt(9, game.version());
+    }
+
+    @Override
+    public int archiveFinishedGames(long finishedBefore, int limit) throws DataAccessException {
+        String select = "SELECT gameID, whiteUsername, blackUsername, gameName, game, gameOver, version, finishedAt " +
+                "FROM game WHERE finishedAt > 0 AND finishedAt < ? AND gameOver = TRUE ORDER BY finishedAt LIMIT ? FOR UPDATE";
+        String insert = "INSERT INTO game_archive (gameID, gameName, finishedAt, archivedAt, data) VALUES (?, ?, ?, ?, ?)";
+        String delete = "DELETE FROM game WHERE gameID = ?";
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            //the rows stay locked until commit, so nothing can change a game between copying and deleting it
+            try (PreparedStatement selectStmt = conn.prepareStatement(select);
+                 PreparedStatement insertStmt = conn.prepareStatement(insert);
+                 PreparedStatement deleteStmt = conn.prepareStatement(delete)) {
+                selectStmt.setLong(1, finishedBefore);
+                selectStmt.setInt(2, limit);
+
+                long now = System.currentTimeMillis();
+                int count = 0;
+                try (ResultSet rs = selectStmt.executeQuery()) {
+                    while (rs.next()) {
+                        int id = rs.getInt("gameID");
+                        GameData game = GameData.fromStoredGame(id, rs.getString("whiteUsername"), rs.getString("blackUsername"),
+                                rs.getString("gameName"), rs.getString("game"), rs.getBoolean("gameOver"), rs.getInt("version"));
+
+                        insertStmt.setInt(1, id);
+                        insertStmt.setString(2, game.gameName());
+                        insertStmt.setLong(3, rs.getLong("finishedAt"));
+                        insertStmt.setLong(4, now);
+                        insertStmt.setBytes(5, compress(gson.toJson(game)));
+                        insertStmt.addBatch();
+                        deleteStmt.setInt(1, id);
+                        deleteStmt.addBatch();
+                        count++;
+                    }
+                }
+                if (count > 0) {
+                    insertStmt.executeBatch();
+                    deleteStmt.executeBatch();
+                }
+                conn.commit();
+                return count;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error archiving games: " + e.getMessage());
+        }
+    }
+
+    //whether the game table has the row, on the caller's connection so it doesn't take a second one from the pool
+    private boolean isLive(Connection conn, int gameID) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM game WHERE gameID = ?")) {
+            stmt.setInt(1, gameID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    //null if the game isn't in the archive
+    private GameData getArchivedGame(Connection conn, int gameID) throws SQLException, DataAccessException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT data FROM game_archive WHERE gameID = ?")) {
+            stmt.setInt(1, gameID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return gson.fromJson(decompress(rs.getBytes("data")), GameData.class);
+            }
+        }
+    }
+
+    //finished games are written once and read rarely, so they're worth squeezing. board JSON shrinks a lot
+    private static byte[] compress(String json) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(json.getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String decompress(byte[] data) throws DataAccessException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsInput()) {
+                    throw new DataAccessException("Error: archived game data is truncated");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new DataAccessException("Error: archived game data is corrupt: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void clear() {
+        //TRUNCATE also resets the AUTO_INCREMENT so ids start at 1 again
         try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             Statement stmt = conn.createStatement()) {
 
-            stmt.executeUpdate();
+            stmt.executeUpdate("TRUNCATE TABLE game");
+            stmt.executeUpdate("TRUNCATE TABLE game_archive");
         } catch (SQLException | DataAccessException e) {
             System.err.println("Error clearing game table: " + e.getMessage());
         }
@@ -8,6 +8,9 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final int DEFAULT_POOL_SIZE = 10;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 250;
+    private static final ConnectionPool POOL;
 
     static {
         try {
@@ -27,6 +30,16 @@ public class DatabaseManager {
                 var port = Integer.parseInt(props.getProperty("db.port"));
 
                 CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+
+                //the driver keeps server side prepared statements per connection, keyed by the SQL text.
+                //the same few statements run on every request so pooled connections skip the re-parse
+                int poolSize = Integer.parseInt(props.getProperty("db.poolSize", String.valueOf(DEFAULT_POOL_SIZE)));
+                int cacheSize = Integer.parseInt(props.getProperty("db.statementCacheSize",
+                        String.valueOf(DEFAULT_STATEMENT_CACHE_SIZE)));
+                String pooledUrl = CONNECTION_URL + "?useServerPrepStmts=true&cachePrepStmts=true"
+                        + "&prepStmtCacheSize=" + cacheSize + "&prepStmtCacheSqlLimit=2048"
+                        + "&rewriteBatchedStatements=true"; //batched inserts go out as one multi-row INSERT
+                POOL = new ConnectionPool(pooledUrl, USER, PASSWORD, DATABASE_NAME, poolSize);
             }
 
             DatabaseManager.createDatabase();
@@ -36,87 +49,35 @@ public class DatabaseManager {
     }
 
     static void createDatabase() throws DataAccessException {
-        try {
-            var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-
-            try (var preparedStatement = conn.prepareStatement(statement)) {
-                preparedStatement.executeUpdate();
-            }
-
-            createTables();
+        var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
+        try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+             var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
+
+        createTables();
     }
 
+    //pooled, close() hands the connection back instead of closing it
     static Connection getConnection() throws DataAccessException {
         try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
+            return POOL.borrow();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
 
-    static void createTables() throws DataAccessException {
-        String[] createStatements = {
-                """
-        CREATE TABLE IF NOT EXISTS user (
-            username VARCHAR(50) PRIMARY KEY,
-            password TEXT NOT NULL,
-            email TEXT NOT NULL
-        )
-        """,
-                """
-        CREATE TABLE IF NOT EXISTS auth (
-            authToken VARCHAR(50) PRIMARY KEY,
-            username TEXT
-        )
-        """,
-                """
-        CREATE TABLE IF NOT EXISTS game (
-            gameID INTEGER PRIMARY KEY,
-            whiteUsername TEXT,
-            blackUsername TEXT,
-            gameName TEXT,
-            game TEXT,
-            gameOver BOOLEAN NOT NULL DEFAULT FALSE
-        )
-        """
-        };
-
-        clearTables();
-
-        try {
-            var conn = getConnection();
-
-            try (var statement = conn.createStatement()) {
-                for (String sql : createStatements) {
-                    statement.executeUpdate(sql);
-                }
-            }
-        } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
-        }
+    //for shutdown, once nothing is going to ask for a connection again
+    public static void closeIdleConnections() {
+        POOL.closeIdle();
     }
 
-    static void clearTables() throws DataAccessException {
-        String[] dropStatements = {
-                "DROP TABLE IF EXISTS user",
-                "DROP TABLE IF EXISTS auth",
-                "DROP TABLE IF EXISTS game"
-        };
-
-        try {
-            var conn = getConnection();
-
-            try (var statement = conn.createStatement()) {
-                for (String sql : dropStatements) {
-                    statement.executeUpdate(sql);
-                }
-            }
+    //brings the tables up to the current schema. never drops anything, so it's safe on every startup
+    static void createTables() throws DataAccessException {
+        try (var conn = getConnection()) {
+            new SchemaMigrator().migrate(conn);
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
@@ -0,0 +1,75 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+//AuthDAO kept in memory and logged to a file, see FileStore
+public class FileAuthDAO implements AuthDAO, AutoCloseable {
+    private final FileStore<AuthData> authTokens;
+    private final long tokenLifetimeMillis;
+
+    public FileAuthDAO(Path dataDir) throws DataAccessException {
+        this(dataDir, DEFAULT_TOKEN_LIFETIME_MILLIS);
+    }
+
+    public FileAuthDAO(Path dataDir, long tokenLifetimeMillis) throws DataAccessException {
+        this.authTokens = new FileStore<>(dataDir.resolve("auth.log"), AuthData.class);
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+    }
+
+    @Override
+    public String makeAuth(String username) throws DataAccessException {
+        if (username == null || username.isEmpty()) {
+            throw new DataAccessException("Error: username cannot be empty");
+        }
+        String authToken = UUID.randomUUID().toString();
+        authTokens.put(authToken, new AuthData(authToken, username, System.currentTimeMillis() + tokenLifetimeMillis));
+        return authToken;
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        AuthData auth = authToken == null ? null : authTokens.get(authToken);
+        if (auth == null || auth.isExpired(System.currentTimeMillis())) {
+            throw new UnauthorizedException("Error: auth token not found: " + authToken);
+        }
+        return auth;
+    }
+
+    @Override
+    public void deleteAuth(String authToken) throws DataAccessException {
+        if (authToken == null || authTokens.remove(authToken) == null) {
+            throw new UnauthorizedException("Error: auth token not found");
+        }
+    }
+
+    @Override
+    public int deleteExpired(long nowMillis, int limit) throws DataAccessException {
+        int deleted = 0;
+        for (AuthData auth : authTokens.values()) {
+            if (deleted >= limit) {
+                break;
+            }
+            if (auth.isExpired(nowMillis) && authTokens.remove(auth.authToken()) != null) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public void clear() {
+        try {
+            authTokens.clear();
+        } catch (DataAccessException e) {
+            System.err.println("Error clearing auth tokens: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws DataAccessException {
+        authTokens.close();
+    }
+}
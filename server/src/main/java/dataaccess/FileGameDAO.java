@@ -0,0 +1,91 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameData;
+import model.GameSummary;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//GameDAO kept in memory and logged to a file, see FileStore
+public class FileGameDAO implements GameDAO, AutoCloseable {
+    private final FileStore<GameData> games;
+    private final AtomicInteger nextID;
+    private final Object updateLock = new Object(); //version check and write have to happen together
+
+    public FileGameDAO(Path dataDir) throws DataAccessException {
+        games = new FileStore<>(dataDir.resolve("games.log"), GameData.class);
+        int highest = games.values().stream().mapToInt(GameData::gameID).max().orElse(0);
+        nextID = new AtomicInteger(highest + 1);
+    }
+
+    @Override
+    public int createGame(String gameName) throws DataAccessException {
+        if (gameName == null || gameName.trim().isEmpty()) {
+            throw new BadRequestException("Game name can't be empty!");
+        }
+        int id = nextID.getAndIncrement();
+        games.put(key(id), new GameData(id, null, null, gameName, new ChessGame(), false));
+        return id;
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        GameData game = games.get(key(gameID));
+        if (game == null) {
+            throw new NotFoundException("Error: couldn't find game with ID: " + gameID);
+        }
+        return game;
+    }
+
+    @Override
+    public List<GameData> listGames() {
+        return games.values().stream()
+                .sorted(Comparator.comparingInt(GameData::gameID))
+                .toList();
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(GameQuery query) {
+        return games.values().stream()
+                .filter(query::matches)
+                .sorted(Comparator.comparingInt(GameData::gameID))
+                .limit(query.limit())
+                .map(GameSummary::of)
+                .toList();
+    }
+
+    @Override
+    public void updateGame(GameData updatedGame) throws DataAccessException {
+        synchronized (updateLock) {
+            GameData current = getGame(updatedGame.gameID());
+            if (current.version() != updatedGame.version()) {
+                throw new ConflictException("Error: game " + updatedGame.gameID() + " was changed by someone else");
+            }
+            games.put(key(updatedGame.gameID()), updatedGame.withVersion(updatedGame.version() + 1));
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (updateLock) {
+            try {
+                games.clear();
+                nextID.set(1);
+            } catch (DataAccessException e) {
+                System.err.println("Error clearing games: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws DataAccessException {
+        games.close();
+    }
+
+    private static String key(int gameID) {
+        return String.valueOf(gameID);
+    }
+}
@@ -0,0 +1,267 @@
+package dataaccess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key/value store that lives in memory and is persisted to an append-only log file.
+ * <p>
+ * Every change is one JSON line appended to the log, and reads never touch the file. On open
+ * the log is replayed to rebuild the index. A change is durable when put/remove/clear returns.
+ * fsyncs are batched: whoever gets to the sync first forces everything written so far, so
+ * concurrent writers share one fsync instead of queuing up for their own. Once the log is mostly
+ * overwritten records it gets compacted in the background, by writing the live entries to a new
+ * file and swapping it in.
+ *
+ * @param <V> value type, anything Gson can round trip
+ */
+public class FileStore<V> implements AutoCloseable {
+    //don't bother compacting small logs
+    private static final int COMPACT_MIN_RECORDS = 1000;
+
+    private final Path path;
+    private final Class<V> type;
+    private final Gson gson = new Gson();
+    private final Map<String, V> index = new ConcurrentHashMap<>();
+    private final ExecutorService compactor;
+
+    private final Object writeLock = new Object(); //log order has to match index order
+    private final Object syncLock = new Object();
+    private FileChannel channel; //swapped by compaction, guarded by both locks
+    private long records; //lines in the current log file
+    private volatile long written; //appends so far
+    private long synced; //appends known to be on disk, guarded by syncLock
+    private boolean compactionQueued;
+
+    public FileStore(Path path, Class<V> type) throws DataAccessException {
+        this.path = path;
+        this.type = type;
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            replay();
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new DataAccessException("Error opening " + path + ": " + e.getMessage());
+        }
+        compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "file-store-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public V get(String key) {
+        return index.get(key);
+    }
+
+    public Collection<V> values() {
+        return new ArrayList<>(index.values());
+    }
+
+    public void put(String key, V value) throws DataAccessException {
+        long sequence;
+        synchronized (writeLock) {
+            sequence = write(new Record(Op.PUT, key, gson.toJsonTree(value)), () -> index.put(key, value));
+        }
+        awaitDurable(sequence);
+    }
+
+    //false (and nothing written) if the key is already there
+    public boolean putIfAbsent(String key, V value) throws DataAccessException {
+        long sequence;
+        synchronized (writeLock) {
+            if (index.containsKey(key)) {
+                return false;
+            }
+            sequence = write(new Record(Op.PUT, key, gson.toJsonTree(value)), () -> index.put(key, value));
+        }
+        awaitDurable(sequence);
+        return true;
+    }
+
+    //returns the removed value, null if there was nothing to remove
+    public V remove(String key) throws DataAccessException {
+        V removed;
+        long sequence;
+        synchronized (writeLock) {
+            removed = index.get(key);
+            if (removed == null) {
+                return null;
+            }
+            sequence = write(new Record(Op.REMOVE, key, null), () -> index.remove(key));
+        }
+        awaitDurable(sequence);
+        return removed;
+    }
+
+    public void clear() throws DataAccessException {
+        long sequence;
+        synchronized (writeLock) {
+            sequence = write(new Record(Op.CLEAR, null, null), index::clear);
+        }
+        awaitDurable(sequence);
+    }
+
+    @Override
+    public void close() throws DataAccessException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (writeLock) {
+            synchronized (syncLock) {
+                try {
+                    channel.force(false);
+                    channel.close();
+                } catch (IOException e) {
+                    throw new DataAccessException("Error closing " + path + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    //caller holds writeLock and calls awaitDurable after letting go of it, so others can append meanwhile
+    private long write(Record record, Runnable applyToIndex) throws DataAccessException {
+        ByteBuffer buffer = ByteBuffer.wrap((gson.toJson(record) + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("Error writing " + path + ": " + e.getMessage());
+        }
+        applyToIndex.run();
+        records++;
+        maybeScheduleCompaction();
+        return ++written;
+    }
+
+    //group commit. one fsync covers every append that made it in before it
+    private void awaitDurable(long sequence) throws DataAccessException {
+        synchronized (syncLock) {
+            if (synced >= sequence) {
+                return; //someone else's fsync already covered this one
+            }
+            long target = written;
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new DataAccessException("Error syncing " + path + ": " + e.getMessage());
+            }
+            synced = target;
+        }
+    }
+
+    private void maybeScheduleCompaction() {
+        if (!compactionQueued && records > COMPACT_MIN_RECORDS && records > 2L * index.size()) {
+            compactionQueued = true;
+            compactor.execute(this::compactQuietly);
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (DataAccessException e) {
+            System.err.println("Error compacting " + path + ": " + e.getMessage());
+        }
+    }
+
+    //rewrites the log as one PUT per live key. writers wait while this runs, readers don't
+    void compact() throws DataAccessException {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        synchronized (writeLock) {
+            compactionQueued = false;
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Map.Entry<String, V> entry : index.entrySet()) {
+                    Record record = new Record(Op.PUT, entry.getKey(), gson.toJsonTree(entry.getValue()));
+                    ByteBuffer buffer = ByteBuffer.wrap((gson.toJson(record) + "\n").getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+                out.force(false);
+            } catch (IOException e) {
+                throw new DataAccessException("Error compacting " + path + ": " + e.getMessage());
+            }
+
+            synchronized (syncLock) {
+                try {
+                    channel.close();
+                    Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                } catch (IOException e) {
+                    throw new DataAccessException("Error compacting " + path + ": " + e.getMessage());
+                }
+                records = index.size();
+                synced = written; //everything in the index was just forced to the new file
+            }
+        }
+    }
+
+    private void replay() throws IOException, DataAccessException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+            try {
+                apply(gson.fromJson(line, Record.class));
+            } catch (JsonParseException | NullPointerException e) {
+                throw new DataAccessException("Error: " + path + " is corrupt at byte " + start);
+            }
+            records++;
+            start = i + 1;
+        }
+        if (start < bytes.length) {
+            //no newline at the end means the process died mid-append. that change was never acknowledged
+            try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncate.truncate(start);
+            }
+        }
+    }
+
+    private void apply(Record record) {
+        switch (record.op()) {
+            case PUT -> index.put(record.key(), gson.fromJson(record.value(), type));
+            case REMOVE -> index.remove(record.key());
+            case CLEAR -> index.clear();
+        }
+    }
+
+    private enum Op { PUT, REMOVE, CLEAR }
+
+    private record Record(Op op, String key, JsonElement value) {}
+
+    //lines in the current log, for tests
+    long records() {
+        synchronized (writeLock) {
+            return records;
+        }
+    }
+}
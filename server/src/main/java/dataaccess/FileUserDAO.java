@@ -0,0 +1,55 @@
+package dataaccess;
+
+import model.UserData;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.nio.file.Path;
+
+//UserDAO kept in memory and logged to a file, see FileStore
+public class FileUserDAO implements UserDAO, AutoCloseable {
+    private final FileStore<UserData> users;
+
+    public FileUserDAO(Path dataDir) throws DataAccessException {
+        users = new FileStore<>(dataDir.resolve("users.log"), UserData.class);
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        if (user.username() == null || user.username().isEmpty()) {
+            throw new BadRequestException("Error: username required");
+        }
+        if (user.password() == null || user.password().isEmpty()) {
+            throw new BadRequestException("Error: password required");
+        }
+        if (user.email() == null || user.email().isEmpty()) {
+            throw new BadRequestException("Error: email required");
+        }
+        String hashedPassword = BCrypt.hashpw(user.password(), BCrypt.gensalt());
+        if (!users.putIfAbsent(user.username(), new UserData(user.username(), hashedPassword, user.email()))) {
+            throw new BadRequestException("Error: username already exists");
+        }
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        UserData user = username == null ? null : users.get(username);
+        if (user == null) {
+            throw new UnauthorizedException("Error: the following user was not found... " + username);
+        }
+        return user;
+    }
+
+    @Override
+    public void clear() {
+        try {
+            users.clear();
+        } catch (DataAccessException e) {
+            System.err.println("Error clearing users: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws DataAccessException {
+        users.close();
+    }
+}
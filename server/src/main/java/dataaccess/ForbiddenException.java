@@ -0,0 +1,7 @@
+package dataaccess;
+//the request is understood but not allowed, like changing a game that was archived (for HTTP 403)
+public class ForbiddenException extends DataAccessException {
+  public ForbiddenException(String message) {
+    super(message);
+  }
+}
@@ -1,12 +1,44 @@
 package dataaccess;
 
 import model.GameData;
+import model.GameSummary;
+
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public interface GameDAO {
     int createGame(String gameName) throws DataAccessException;
     GameData getGame(int gameID) throws DataAccessException;
+    //players, name and state only, for callers that don't need the board
+    default GameSummary getGameSummary(int gameID) throws DataAccessException {
+        return GameSummary.of(getGame(gameID));
+    }
     List<GameData> listGames() throws DataAccessException;
+    //one page of games in gameID order, without loading any boards
+    List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException;
     void updateGame(GameData updatedGame) throws DataAccessException;
     void clear();
-}
\ No newline at end of file
+
+    //ids in the same order as the names. DBGameDAO does this as one transaction, these defaults are one at a time
+    default List<Integer> createGames(List<String> gameNames) throws DataAccessException {
+        List<Integer> ids = new ArrayList<>();
+        for (String gameName : gameNames) {
+            ids.add(createGame(gameName));
+        }
+        return ids;
+    }
+
+    //same version rules as updateGame. DBGameDAO applies all or none, a conflict anywhere rolls the batch back
+    default void updateGames(Collection<GameData> updatedGames) throws DataAccessException {
+        for (GameData game : updatedGames) {
+            updateGame(game);
+        }
+    }
+
+    //moves up to limit games that ended before finishedBefore (epoch millis) out of the live games, returns how many.
+    //getGame still finds them but they can't be changed anymore. the default keeps every game live
+    default int archiveFinishedGames(long finishedBefore, int limit) throws DataAccessException {
+        return 0;
+    }
+}
@@ -0,0 +1,48 @@
+package dataaccess;
+
+import model.GameData;
+
+/**
+ * Which page of games to list.
+ * <p>
+ * Paging is keyset based: games come back in gameID order starting after afterGameID, so every page
+ * is an index range scan no matter how deep into the list it is.
+ *
+ * @param afterGameID   only games with a higher id, 0 for the first page
+ * @param limit         max number of games to return
+ * @param openSeatsOnly only games with an empty seat
+ * @param player        only games this user is playing in, null for anyone
+ * @param finished      only finished (true) or unfinished (false) games, null for both
+ */
+public record GameQuery(int afterGameID, int limit, boolean openSeatsOnly, String player, Boolean finished) {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 500;
+
+    public GameQuery {
+        if (afterGameID < 0 || limit < 1) {
+            throw new IllegalArgumentException("bad game query: after " + afterGameID + ", limit " + limit);
+        }
+    }
+
+    public static GameQuery firstPage() {
+        return new GameQuery(0, DEFAULT_LIMIT, false, null, null);
+    }
+
+    public GameQuery withLimit(int newLimit) {
+        return new GameQuery(afterGameID, newLimit, openSeatsOnly, player, finished);
+    }
+
+    //for DAOs that filter in memory
+    public boolean matches(GameData game) {
+        if (game.gameID() <= afterGameID) {
+            return false;
+        }
+        if (openSeatsOnly && game.whiteUsername() != null && game.blackUsername() != null) {
+            return false;
+        }
+        if (player != null && !player.equals(game.whiteUsername()) && !player.equals(game.blackUsername())) {
+            return false;
+        }
+        return finished == null || finished == game.gameOver();
+    }
+}
@@ -2,12 +2,22 @@ package dataaccess;
 
 import model.AuthData;
 
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MemoryAuthDAO implements AuthDAO {
-    private final Map<String, AuthData> authTokens = new HashMap<>();
+    private final Map<String, AuthData> authTokens = new ConcurrentHashMap<>(); //safe to share between request threads
+    private final long tokenLifetimeMillis;
+
+    public MemoryAuthDAO() {
+        this(DEFAULT_TOKEN_LIFETIME_MILLIS);
+    }
+
+    public MemoryAuthDAO(long tokenLifetimeMillis) {
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+    }
 
     @Override
     public String makeAuth(String username) throws DataAccessException {
@@ -15,15 +25,15 @@ public class MemoryAuthDAO implements AuthDAO {
             throw new DataAccessException("Error: username cannot be empty");
         }
         String authToken = UUID.randomUUID().toString(); //ex from the class md for getting a unique token
-        AuthData auth = new AuthData(authToken, username);
+        AuthData auth = new AuthData(authToken, username, System.currentTimeMillis() + tokenLifetimeMillis);
         authTokens.put(authToken, auth); //slap new authToken into that hashmap
         return authToken;
     }
 
     @Override
     public AuthData getAuth(String authToken) throws DataAccessException {
-        AuthData auth = authTokens.get(authToken);
-        if (auth == null) {
+        AuthData auth = authToken == null ? null : authTokens.get(authToken); //ConcurrentHashMap doesn't take null keys
+        if (auth == null || auth.isExpired(System.currentTimeMillis())) {
             throw new UnauthorizedException("Error: auth token not found: " + authToken);
         }
         return auth;
@@ -31,11 +41,24 @@ public class MemoryAuthDAO implements AuthDAO {
 
     @Override
     public void deleteAuth(String authToken) throws DataAccessException {
-        if (authTokens.remove(authToken) == null) {
+        if (authToken == null || authTokens.remove(authToken) == null) {
             throw new UnauthorizedException("Error: auth token not found"); //adjusted to correct exception type
         }
     }
 
+    @Override
+    public int deleteExpired(long nowMillis, int limit) {
+        int deleted = 0;
+        Iterator<AuthData> tokens = authTokens.values().iterator();
+        while (tokens.hasNext() && deleted < limit) {
+            if (tokens.next().isExpired(nowMillis)) {
+                tokens.remove();
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
     @Override
     public void clear() {
         authTokens.clear();
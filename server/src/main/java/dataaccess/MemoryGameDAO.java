@@ -1,17 +1,20 @@
 package dataaccess;
 
 import model.GameData;
+import model.GameSummary;
 import chess.ChessGame;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
-//GameDAO in memory for game
+//GameDAO in memory for game. safe to share between request threads
 public class MemoryGameDAO implements GameDAO {
 
-    private HashMap<Integer, GameData> games = new HashMap<>();//ID connects to game
-    private int nextID = 1; //keep track
+    private final Map<Integer, GameData> games = new ConcurrentHashMap<>();//ID connects to game
+    private final AtomicInteger nextID = new AtomicInteger(1); //keep track
 
     @Override
     public int createGame(String gameName) throws DataAccessException {
@@ -20,8 +23,7 @@ public class MemoryGameDAO implements GameDAO {
         }
 
         //new game
-        int id = nextID;
-        nextID++;
+        int id = nextID.getAndIncrement();
 
         GameData newGame = new GameData(id, null, null, gameName, new ChessGame(), false); //defaults
         games.put(id, newGame);
@@ -30,40 +32,62 @@ public class MemoryGameDAO implements GameDAO {
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        //loop through
-        for (Integer id : games.keySet()) {
-            if (id == gameID) {
-                return games.get(id);
-            }
+        GameData game = games.get(gameID);
+        if (game == null) {
+            throw new NotFoundException("Error: couldn't find game with ID: " + gameID);
         }
-        throw new DataAccessException("Couldn't find game with ID: " + gameID);
+        return copyOf(game);
     }
 
     @Override
     public List<GameData> listGames() throws DataAccessException {
         //list of stored games
-        List<GameData> list = new ArrayList<>();
-        for (GameData g : games.values()) {
-            list.add(g);
-        }
-        return list;
+        return games.values().stream()
+                .sorted(Comparator.comparingInt(GameData::gameID))
+                .map(MemoryGameDAO::copyOf)
+                .toList();
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+        return games.values().stream()
+                .filter(query::matches)
+                .sorted(Comparator.comparingInt(GameData::gameID))
+                .limit(query.limit())
+                .map(GameSummary::of)
+                .toList();
     }
 
     @Override
     public void updateGame(GameData updatedGame) throws DataAccessException {
         int id = updatedGame.gameID();
-        if (!games.containsKey(id)) {
-            throw new DataAccessException("No game found with ID: " + id);
-        }
+        boolean[] conflict = {false};
+        //compute so the version check and the write can't interleave with another update
+        GameData stored = games.computeIfPresent(id, (key, current) -> {
+            if (current.version() != updatedGame.version()) {
+                conflict[0] = true;
+                return current;
+            }
+            return copyOf(updatedGame).withVersion(updatedGame.version() + 1);
+        });
 
-        games.remove(id);
-        games.put(id, updatedGame);
+        if (stored == null) {
+            throw new NotFoundException("Error: couldn't find game with ID: " + id);
+        }
+        if (conflict[0]) {
+            throw new ConflictException("Error: game " + id + " was changed by someone else");
+        }
     }
 
     @Override
     public void clear(){
         //reset map and id counter
         games.clear();
-        nextID = 1;
+        nextID.set(1);
+    }
+
+    //ChessGame is mutable, so nobody outside gets to hold the stored board (same as reading it back from a database)
+    private static GameData copyOf(GameData game) {
+        return game.game() == null ? game : game.withGame(new ChessGame(game.game()), game.gameOver());
     }
 }
@@ -1,11 +1,12 @@
 package dataaccess;
 
 import model.UserData;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.mindrot.jbcrypt.BCrypt;
 
 public class MemoryUserDAO implements UserDAO {
-    private final HashMap<String, UserData> users = new HashMap<>();
+    private final Map<String, UserData> users = new ConcurrentHashMap<>();
 
     public void createUser(UserData user) throws DataAccessException {
         if (users.containsKey(user.username())) {
@@ -15,12 +16,15 @@ public class MemoryUserDAO implements UserDAO {
         String hashedPassword = BCrypt.hashpw(user.password(), BCrypt.gensalt());
         //new user data
         UserData userWithHashedPassword = new UserData(user.username(), hashedPassword, user.email());
-        users.put(user.username(), userWithHashedPassword);
+        //check again atomically, two registrations for the same name can both get past the check above
+        if (users.putIfAbsent(user.username(), userWithHashedPassword) != null) {
+            throw new BadRequestException("Error: username already exists");
+        }
     }
 
 
     public UserData getUser(String username) throws DataAccessException {
-        UserData user = users.get(username);
+        UserData user = username == null ? null : users.get(username); //ConcurrentHashMap doesn't take null keys
         //if null is returned, then exception thrown. Prob rm exception after I test
         if (user == null) {
             throw new UnauthorizedException("Error: the following user was not found... " + username);
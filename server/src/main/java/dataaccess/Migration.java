@@ -0,0 +1,31 @@
+package dataaccess;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * One step of the schema. Once a migration has shipped it must never be edited, add a new one instead.
+ * The checksum is what catches an edited migration on a database that already ran the old one.
+ */
+public record Migration(int version, String description, List<String> statements) {
+    public Migration(int version, String description, String... statements) {
+        this(version, description, List.of(statements));
+    }
+
+    public String checksum() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String sql : statements) {
+                //whitespace only changes (reindenting a text block) shouldn't count as an edit
+                digest.update(sql.strip().replaceAll("\\s+", " ").getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package dataaccess;
+//no game (or other record) with that ID (for HTTP 404)
+public class NotFoundException extends DataAccessException {
+  public NotFoundException(String message) {
+    super(message);
+  }
+}
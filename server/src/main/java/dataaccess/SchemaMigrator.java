@@ -0,0 +1,221 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Brings the schema forward in place without touching existing data.
+ * <p>
+ * Applied versions are recorded in schema_version along with a checksum of their statements. On startup
+ * only the missing migrations run, in version order. MySQL can't roll back DDL, so each statement is
+ * written to be safe to re-run and "already exists" errors are ignored; a migration that died half way
+ * just runs again. A named lock keeps two servers starting at once from migrating at the same time.
+ */
+public class SchemaMigrator {
+    private static final String LOCK_NAME = "chess_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+    //table exists, duplicate column, duplicate key, can't drop missing key/column, duplicate foreign key
+    private static final Set<Integer> ALREADY_APPLIED_ERRORS = Set.of(1050, 1060, 1061, 1091, 1826);
+
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "initial tables",
+                    """
+                    CREATE TABLE IF NOT EXISTS user (
+                        username VARCHAR(50) PRIMARY KEY,
+                        password TEXT NOT NULL,
+                        email TEXT NOT NULL
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS auth (
+                        authToken VARCHAR(50) PRIMARY KEY,
+                        username TEXT
+                    )
+                    """,
+                    """
+                    CREATE TABLE IF NOT EXISTS game (
+                        gameID INTEGER PRIMARY KEY,
+                        whiteUsername TEXT,
+                        blackUsername TEXT,
+                        gameName TEXT,
+                        game TEXT,
+                        gameOver BOOLEAN NOT NULL DEFAULT FALSE
+                    )
+                    """),
+            new Migration(2, "auth token expiry",
+                    "ALTER TABLE auth ADD COLUMN issuedAt BIGINT NOT NULL DEFAULT 0",
+                    "ALTER TABLE auth ADD COLUMN expiresAt BIGINT NOT NULL DEFAULT 0",
+                    //tokens from before expiry existed get a normal lifetime starting now
+                    """
+                    UPDATE auth SET issuedAt = UNIX_TIMESTAMP() * 1000,
+                                    expiresAt = UNIX_TIMESTAMP() * 1000 + 86400000
+                    WHERE expiresAt = 0
+                    """,
+                    "ALTER TABLE auth ADD INDEX idx_auth_expires (expiresAt)"),
+            new Migration(3, "database assigned game ids",
+                    "ALTER TABLE game MODIFY gameID INTEGER NOT NULL AUTO_INCREMENT"),
+            //TEXT columns can't be indexed as a whole, so bounded types first and then the indexes
+            new Migration(4, "bounded columns, player and state indexes, auth foreign key",
+                    """
+                    ALTER TABLE game
+                        MODIFY whiteUsername VARCHAR(50) NULL,
+                        MODIFY blackUsername VARCHAR(50) NULL,
+                        MODIFY gameName VARCHAR(100) NOT NULL
+                    """,
+                    "ALTER TABLE game ADD INDEX idx_game_white (whiteUsername, gameID)",
+                    "ALTER TABLE game ADD INDEX idx_game_black (blackUsername, gameID)",
+                    "ALTER TABLE game ADD INDEX idx_game_state (gameOver, gameID)",
+                    //tokens whose user is gone would block the foreign key, and are useless anyway
+                    "DELETE FROM auth WHERE username IS NULL OR username NOT IN (SELECT username FROM user)",
+                    "ALTER TABLE auth MODIFY username VARCHAR(50) NOT NULL",
+                    "ALTER TABLE auth ADD INDEX idx_auth_username (username)",
+                    //no foreign keys on the game seats, a game outlives the accounts that played it
+                    """
+                    ALTER TABLE auth ADD CONSTRAINT fk_auth_user
+                        FOREIGN KEY (username) REFERENCES user (username) ON DELETE CASCADE
+                    """),
+            new Migration(5, "game row version for optimistic updates",
+                    "ALTER TABLE game ADD COLUMN version INTEGER NOT NULL DEFAULT 0"),
+            new Migration(6, "finished game archive",
+                    "ALTER TABLE game ADD COLUMN finishedAt BIGINT NOT NULL DEFAULT 0",
+                    //games that were already over start aging from now
+                    "UPDATE game SET finishedAt = UNIX_TIMESTAMP() * 1000 WHERE gameOver = TRUE AND finishedAt = 0",
+                    "ALTER TABLE game ADD INDEX idx_game_finished (finishedAt)",
+                    //the whole GameData as deflated JSON, nothing in here is queried but the id
+                    """
+                    CREATE TABLE IF NOT EXISTS game_archive (
+                        gameID INTEGER PRIMARY KEY,
+                        gameName VARCHAR(100) NOT NULL,
+                        finishedAt BIGINT NOT NULL,
+                        archivedAt BIGINT NOT NULL,
+                        data MEDIUMBLOB NOT NULL
+                    )
+                    """)
+    );
+
+    private final List<Migration> migrations;
+
+    public SchemaMigrator() {
+        this(MIGRATIONS);
+    }
+
+    public SchemaMigrator(List<Migration> migrations) {
+        this.migrations = migrations.stream()
+                .sorted((a, b) -> Integer.compare(a.version(), b.version()))
+                .toList();
+    }
+
+    public int latestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version();
+    }
+
+    //returns how many migrations were applied
+    public int migrate(Connection conn) throws DataAccessException {
+        try {
+            createVersionTable(conn);
+            acquireLock(conn);
+            try {
+                Map<Integer, String> applied = appliedChecksums(conn);
+                verify(applied);
+
+                int count = 0;
+                for (Migration migration : migrations) {
+                    if (!applied.containsKey(migration.version())) {
+                        apply(conn, migration);
+                        count++;
+                    }
+                }
+                return count;
+            } finally {
+                releaseLock(conn);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Error migrating schema: " + e.getMessage());
+        }
+    }
+
+    private void createVersionTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                        version INTEGER PRIMARY KEY,
+                        description VARCHAR(255) NOT NULL,
+                        checksum CHAR(64) NOT NULL,
+                        appliedAt BIGINT NOT NULL
+                    )
+                    """);
+        }
+    }
+
+    private void acquireLock(Connection conn) throws SQLException, DataAccessException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new DataAccessException("Error: timed out waiting for the schema migration lock");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, LOCK_NAME);
+            stmt.executeQuery().close();
+        }
+    }
+
+    private Map<Integer, String> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    //a shipped migration that was edited afterwards means this database and the code disagree on the schema
+    private void verify(Map<Integer, String> applied) throws DataAccessException {
+        for (Migration migration : migrations) {
+            String checksum = applied.get(migration.version());
+            if (checksum != null && !checksum.equals(migration.checksum())) {
+                throw new DataAccessException("Error: schema migration " + migration.version() +
+                        " (" + migration.description() + ") was changed after it was applied");
+            }
+        }
+        //versions we don't know about are from a newer server during a rolling deploy, they're additive so keep going
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : migration.statements()) {
+                try {
+                    stmt.executeUpdate(sql);
+                } catch (SQLException e) {
+                    if (!ALREADY_APPLIED_ERRORS.contains(e.getErrorCode())) {
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        String sql = "INSERT INTO schema_version (version, description, checksum, appliedAt) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, migration.version());
+            stmt.setString(2, migration.description());
+            stmt.setString(3, migration.checksum());
+            stmt.setLong(4, System.currentTimeMillis());
+            stmt.executeUpdate();
+        }
+    }
+}
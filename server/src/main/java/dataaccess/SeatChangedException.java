@@ -0,0 +1,7 @@
+package dataaccess;
+//the user doesn't have the seat they were acting for anymore, e.g. they left or switched colors since connecting
+public class SeatChangedException extends DataAccessException {
+  public SeatChangedException(String message) {
+    super(message);
+  }
+}
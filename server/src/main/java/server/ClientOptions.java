@@ -0,0 +1,30 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a WebSocket client asked for when it connected, as query parameters on the /ws URL.
+ * Everything is off by default, so clients that don't know about these get the original protocol.
+ * <ul>
+ *     <li>updates=delta: MOVE_DELTA after each move instead of a full LOAD_GAME</li>
+ *     <li>format=binary: server messages go out as BinaryProtocol binary frames instead of JSON text</li>
+ * </ul>
+ */
+public record ClientOptions(boolean moveDeltas, boolean binary) {
+    public static final ClientOptions DEFAULT = new ClientOptions(false, false);
+
+    public static ClientOptions from(Session session) {
+        if (session.getUpgradeRequest() == null) {
+            return DEFAULT;
+        }
+        Map<String, List<String>> params = session.getUpgradeRequest().getParameterMap();
+        if (params == null) {
+            return DEFAULT;
+        }
+        return new ClientOptions(params.getOrDefault("updates", List.of()).contains("delta"),
+                params.getOrDefault("format", List.of()).contains("binary"));
+    }
+}
@@ -0,0 +1,105 @@
+package server;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs WebSocket work one game at a time.
+ * <p>
+ * Every game gets a mailbox. Tasks for the same game run one after another in the order they were
+ * submitted, so two commands for a game never read and write it at the same time. Different games
+ * run in parallel on virtual threads, and Jetty's threads only ever enqueue. A mailbox goes away
+ * once it's empty, so idle games cost nothing.
+ */
+public class GameActors {
+    public static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    private final Map<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    public GameActors() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public GameActors(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public void submit(int gameID, Runnable task) {
+        Mailbox[] start = {null};
+        //compute locks the entry, so adding here and retiring in drain can't cross
+        mailboxes.compute(gameID, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox(id);
+            }
+            mailbox.tasks.add(task);
+            if (!mailbox.running) {
+                mailbox.running = true;
+                start[0] = mailbox;
+            }
+            return mailbox;
+        });
+        if (start[0] != null) {
+            executor.execute(() -> drain(start[0]));
+        }
+    }
+
+    //lets what's already queued finish, so nothing is still changing games once this returns
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Game commands still running after " + SHUTDOWN_WAIT_SECONDS + "s, giving up on them");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //games with work queued or running, for tests
+    int activeGames() {
+        return mailboxes.size();
+    }
+
+    private void drain(Mailbox mailbox) {
+        while (true) {
+            Runnable task = mailbox.tasks.poll();
+            if (task == null) {
+                boolean[] retired = {false};
+                mailboxes.computeIfPresent(mailbox.gameID, (id, current) -> {
+                    if (!current.tasks.isEmpty()) {
+                        return current; //something came in meanwhile, keep going
+                    }
+                    current.running = false;
+                    retired[0] = true;
+                    return null;
+                });
+                if (retired[0]) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                //one bad command shouldn't stall the rest of the game
+                System.err.println("Error handling command for game " + mailbox.gameID + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static class Mailbox {
+        private final int gameID;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private boolean running; //only touched inside mailboxes.compute for this game
+
+        Mailbox(int gameID) {
+            this.gameID = gameID;
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package server;
 
+import chess.ChessGame;
 import com.google.gson.Gson;
+import dataaccess.BadRequestException;
 import dataaccess.DataAccessException;
+import dataaccess.ForbiddenException;
+import dataaccess.GameQuery;
+import dataaccess.NotFoundException;
 import dataaccess.UnauthorizedException;
 import model.GameData;
 import request.CreateGameRequest;
@@ -49,8 +54,7 @@ public class GameHandler {
                 throw new DataAccessException("Error: unauthorized");
             }
 
-            List<GameData> games = gameService.listGames(authToken);
-            ListGamesResponse response = new ListGamesResponse(games);
+            ListGamesResponse response = gameService.listGames(authToken, parseQuery(req));
             res.status(200);
             return gson.toJson(response);
         } catch (DataAccessException e) {
@@ -58,6 +62,65 @@ public class GameHandler {
         }
     }
 
+    //GET /game?cursor=&limit=&open=true&player=&finished=true|false, everything optional
+    private GameQuery parseQuery(Request req) throws DataAccessException {
+        try {
+            int cursor = req.queryParams("cursor") == null ? 0 : Integer.parseInt(req.queryParams("cursor"));
+            int limit = req.queryParams("limit") == null ? GameQuery.DEFAULT_LIMIT : Integer.parseInt(req.queryParams("limit"));
+            boolean open = Boolean.parseBoolean(req.queryParams("open"));
+            String player = req.queryParams("player");
+            String finished = req.queryParams("finished");
+            return new GameQuery(cursor, Math.min(limit, GameQuery.MAX_LIMIT), open,
+                    player == null || player.isEmpty() ? null : player,
+                    finished == null ? null : Boolean.valueOf(finished));
+        } catch (IllegalArgumentException e) { //NumberFormatException is one of these too
+            throw new DataAccessException("Error: bad request");
+        }
+    }
+
+    //one game with its board. the list doesn't carry boards anymore
+    public Object getGame(Request req, Response res) {
+        try {
+            String authToken = req.headers("Authorization");
+            gameService.getAuth(authToken);
+
+            int gameID;
+            try {
+                gameID = Integer.parseInt(req.params(":gameID"));
+            } catch (NumberFormatException e) {
+                throw new DataAccessException("Error: bad request");
+            }
+
+            GameData game = gameService.getGame(gameID);
+            res.status(200);
+            return gson.toJson(game);
+        } catch (DataAccessException e) {
+            return handleException(e, res);
+        }
+    }
+
+    //GET /game/:gameID/replay?ply=N, the board after N moves. no ply means the start of the game
+    public Object replayGame(Request req, Response res) {
+        try {
+            String authToken = req.headers("Authorization");
+            int gameID;
+            int ply;
+            try {
+                gameID = Integer.parseInt(req.params(":gameID"));
+                String plyParam = req.queryParams("ply");
+                ply = plyParam == null ? 0 : Integer.parseInt(plyParam);
+            } catch (NumberFormatException e) {
+                throw new DataAccessException("Error: bad request");
+            }
+
+            ChessGame game = gameService.replayGame(authToken, gameID, ply);
+            res.status(200);
+            return gson.toJson(game);
+        } catch (DataAccessException e) {
+            return handleException(e, res);
+        }
+    }
+
     public Object joinGame(Request req, Response res) {
         try {
             String authToken = req.headers("Authorization");
@@ -89,9 +152,11 @@ public class GameHandler {
         // Check exception type first
         if (e instanceof UnauthorizedException) {
             res.status(401);
-        } else if (e.getMessage().equals("Error: bad request")) {
+        } else if (e instanceof BadRequestException || e.getMessage().equals("Error: bad request")) {
             res.status(400);
-        } else if (e.getMessage().equals("Error: already taken")) {
+        } else if (e instanceof NotFoundException) {
+            res.status(404);
+        } else if (e instanceof ForbiddenException || e.getMessage().equals("Error: already taken")) {
             res.status(403);
         } else {
             res.status(500);
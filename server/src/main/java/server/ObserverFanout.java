@@ -0,0 +1,180 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Updates for the observers of big games, sent on a tick instead of as they happen.
+ * <p>
+ * A move only records the new position, so the players' command queue never loops over thousands
+ * of observers. Every tick, each game with something new gets one delivery on its own GameActors
+ * (separate from the players' one, and still in order per game): the latest position, then the
+ * notifications since the last tick. If more than one move happened in between, everyone gets the
+ * full board for the last one, since a move delta only makes sense right after the one before it.
+ * <p>
+ * A game starts going through here once it has batchAt observers and only goes back to direct sends
+ * when it drops below half that, after whatever it has waiting was delivered. Otherwise a direct send
+ * could overtake an update still waiting for the tick.
+ */
+public class ObserverFanout {
+    public static final long DEFAULT_TICK_MILLIS = 250;
+
+    private final BiConsumer<Session, OutboundMessage> sender;
+    private final IntFunction<Set<Session>> observers;
+    private final int batchAt;
+    private final GameActors delivery;
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final Set<Integer> batched = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService ticker;
+
+    /**
+     * @param sender queues a message for one session
+     * @param observers the sessions watching a game right now
+     * @param batchAt how many observers a game needs before its updates wait for the tick
+     * @param tickMillis 0 to only deliver when flush() is called
+     */
+    public ObserverFanout(BiConsumer<Session, OutboundMessage> sender, IntFunction<Set<Session>> observers,
+                          int batchAt, long tickMillis) {
+        this.sender = sender;
+        this.observers = observers;
+        this.batchAt = batchAt;
+        this.delivery = new GameActors();
+        if (tickMillis > 0) {
+            ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "observer-fanout");
+                t.setDaemon(true);
+                return t;
+            });
+            ticker.scheduleAtFixedRate(this::flush, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        } else {
+            ticker = null;
+        }
+    }
+
+    /**
+     * Whether updates for a game's observers should go through here. Call it from the game's command
+     * queue before each update, a game leaving the batch has its waiting updates delivered first.
+     */
+    public boolean batching(int gameID) {
+        int watching = observers.apply(gameID).size();
+        if (batched.contains(gameID)) {
+            if (watching * 2 >= batchAt) {
+                return true;
+            }
+            drain(gameID);
+            batched.remove(gameID);
+            return false;
+        }
+        if (watching >= batchAt) {
+            batched.add(gameID);
+            return true;
+        }
+        return false;
+    }
+
+    //delivers what the game has waiting now instead of on the tick, returns once it's been handed to the sessions
+    public void drain(int gameID) {
+        Pending p = pending.remove(gameID);
+        CountDownLatch delivered = new CountDownLatch(1);
+        try {
+            delivery.submit(gameID, () -> {
+                if (p != null) {
+                    deliver(gameID, p);
+                }
+                delivered.countDown();
+            });
+            delivered.await();
+        } catch (RejectedExecutionException e) {
+            //shut down, nobody is listening any more
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A move for the next tick
+     *
+     * @param forSession what one session should get if this is the only move since the last tick
+     * @param board the full position, for when several moves get folded into one update
+     */
+    public void moved(int gameID, Function<Session, OutboundMessage> forSession, Supplier<OutboundMessage> board) {
+        pending.compute(gameID, (id, p) -> {
+            Pending next = p != null ? p : new Pending();
+            next.moves++;
+            next.forSession = forSession;
+            next.board = board;
+            return next;
+        });
+    }
+
+    public void notify(int gameID, OutboundMessage message) {
+        pending.compute(gameID, (id, p) -> {
+            Pending next = p != null ? p : new Pending();
+            next.notes.add(message);
+            return next;
+        });
+    }
+
+    //hands everything waiting to the delivery queues. the ticker calls this, tests can too
+    public void flush() {
+        for (Integer gameID : pending.keySet()) {
+            Pending p = pending.remove(gameID);
+            if (p != null) {
+                delivery.submit(gameID, () -> deliver(gameID, p));
+            }
+        }
+    }
+
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        flush();
+        delivery.shutdown();
+    }
+
+    //games still being delivered to, for tests
+    int delivering() {
+        return delivery.activeGames();
+    }
+
+    private void deliver(int gameID, Pending p) {
+        Set<Session> watching = observers.apply(gameID);
+        OutboundMessage everyone = null;
+        if (p.moves > 1) {
+            everyone = p.board.get();
+        }
+        for (Session session : watching) {
+            if (p.moves == 1) {
+                sender.accept(session, p.forSession.apply(session));
+            } else if (everyone != null) {
+                sender.accept(session, everyone);
+            }
+            for (OutboundMessage note : p.notes) {
+                sender.accept(session, note);
+            }
+        }
+    }
+
+    //only touched inside pending.compute, then by the one delivery that took it out
+    private static class Pending {
+        int moves;
+        Function<Session, OutboundMessage> forSession;
+        Supplier<OutboundMessage> board;
+        final List<OutboundMessage> notes = new ArrayList<>();
+    }
+}
@@ -0,0 +1,74 @@
+package server;
+
+import com.google.gson.Gson;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.BinaryProtocol;
+import websocket.messages.ServerMessage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A server message, encoded at most once per wire format.
+ * <p>
+ * The JSON text or the BinaryProtocol bytes are made the first time a session that uses that format
+ * needs them. Every session it's sent to gets the same String, or its own view of the same bytes,
+ * so telling a game's hundreds of observers about a move costs one serialization per format
+ * instead of one per observer.
+ */
+public final class OutboundMessage {
+    private final Gson gson;
+    private final ServerMessage message;
+    private String json;
+    private int utf8Length = -1;
+    private ByteBuffer binary;
+
+    private OutboundMessage(Gson gson, ServerMessage message) {
+        this.gson = gson;
+        this.message = message;
+    }
+
+    public static OutboundMessage of(Gson gson, ServerMessage message) {
+        return new OutboundMessage(gson, message);
+    }
+
+    public ServerMessage.ServerMessageType type() {
+        return message.getServerMessageType();
+    }
+
+    public synchronized String json() {
+        if (json == null) {
+            json = gson.toJson(message);
+        }
+        return json;
+    }
+
+    private synchronized ByteBuffer binary() {
+        if (binary == null) {
+            binary = ByteBuffer.wrap(BinaryProtocol.encode(message));
+        }
+        return binary.duplicate();
+    }
+
+    //payload size in the given format, before any compression
+    public synchronized int size(boolean asBinary) {
+        if (asBinary) {
+            return binary().remaining();
+        }
+        if (utf8Length < 0) {
+            utf8Length = WebSocketMetrics.utf8Length(json());
+        }
+        return utf8Length;
+    }
+
+    //returns right away, callback hears how the write went
+    public void sendTo(Session session, boolean asBinary, WriteCallback callback) {
+        RemoteEndpoint remote = session.getRemote();
+        if (asBinary) {
+            remote.sendBytes(binary(), callback);
+            return;
+        }
+        remote.sendString(json(), callback);
+    }
+}
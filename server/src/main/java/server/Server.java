@@ -5,10 +5,13 @@ package server;
 
 import com.google.gson.Gson;
 import dataaccess.*;
+import service.AuthSweeper;
+import service.GameArchiver;
 import service.GameService;
 import service.UserService;
 import spark.*;
 
+import java.nio.file.Path;
 import java.util.Map;
 
 public class Server {
@@ -19,28 +22,68 @@ public class Server {
 
     private UserService userService;
     private GameService gameService;
+    private AuthSweeper authSweeper; //removes expired tokens in the background
+    private GameArchiver gameArchiver; //moves long finished games out of the live table
+    private GameActors gameActors; //runs WebSocket commands one game at a time
+    private WebSocketMetrics webSocketMetrics; //bytes in and out of /ws by message type
+    private WebSocketHandler webSocketHandler;
 
     private UserHandler userHandler; //users http requests.
     private GameHandler gameHandler;
 
     public Server() {
-        userDAO = new DBUserDAO(); // Was MemoryUserDAO
-        authDAO = new DBAuthDAO();
-        gameDAO = new DBGameDAO();
+        //-Dchess.storage=mysql (default), file (log files in -Dchess.dataDir, no MySQL needed) or memory
+        String storage = System.getProperty("chess.storage", "mysql");
+        switch (storage) {
+            case "file" -> openFileStorage(Path.of(System.getProperty("chess.dataDir", "data")));
+            case "memory" -> {
+                userDAO = new MemoryUserDAO();
+                authDAO = new MemoryAuthDAO();
+                gameDAO = new MemoryGameDAO();
+            }
+            default -> {
+                userDAO = new DBUserDAO(); // Was MemoryUserDAO
+                authDAO = new CachingAuthDAO(new DBAuthDAO()); //auth is checked on every request, keep hot tokens in memory
+                gameDAO = new DBGameDAO();
+            }
+        }
 
         //user service... dao dependencies
         userService = new UserService(userDAO, authDAO); //connects service to dataaccess
         gameService = new GameService(gameDAO, authDAO);
+        authSweeper = new AuthSweeper(authDAO);
+        gameArchiver = new GameArchiver(gameDAO);
+        gameActors = new GameActors();
+        webSocketMetrics = new WebSocketMetrics();
 
         //user handler... user service dependencies
         userHandler = new UserHandler(userService); //connect handler(http request processing) to service
         gameHandler = new GameHandler(gameService);
     }
 
+    private void openFileStorage(Path dataDir) {
+        try {
+            userDAO = new FileUserDAO(dataDir);
+            authDAO = new FileAuthDAO(dataDir);
+            gameDAO = new FileGameDAO(dataDir);
+        } catch (DataAccessException e) {
+            throw new RuntimeException("unable to open data files in " + dataDir + ". " + e.getMessage());
+        }
+    }
+
     public int run(int desiredPort) {
+        //-Dchess.ws.compression=false to never compress, -Dchess.ws.compressionThreshold=N for the smallest message that is
+        new WebSocketCompression(Boolean.parseBoolean(System.getProperty("chess.ws.compression", "true")),
+                Integer.getInteger("chess.ws.compressionThreshold", WebSocketCompression.DEFAULT_THRESHOLD),
+                webSocketMetrics).install();
         Spark.port(desiredPort);
 
-        Spark.webSocket("/ws", new WebSocketHandler(gameService));
+        //games with -Dchess.ws.observerBatchAt observers or more update them every -Dchess.ws.observerTickMillis
+        webSocketHandler = new WebSocketHandler(gameService, gameActors, webSocketMetrics,
+                Integer.getInteger("chess.ws.observerBatchAt", WebSocketHandler.DEFAULT_OBSERVER_BATCH_AT),
+                Long.getLong("chess.ws.observerTickMillis", ObserverFanout.DEFAULT_TICK_MILLIS));
+        userService.addLogoutListener(webSocketHandler::authRevoked);
+        Spark.webSocket("/ws", webSocketHandler);
 
         Spark.staticFiles.location("web");
 
@@ -49,10 +92,13 @@ public class Server {
         Spark.post("/session", userHandler::login);
         Spark.delete("/session", userHandler::logout);
         Spark.get("/game", gameHandler::listGames);
+        Spark.get("/game/:gameID", gameHandler::getGame);
+        Spark.get("/game/:gameID/replay", gameHandler::replayGame);
         Spark.post("/game", gameHandler::createGame);
         Spark.put("/game", gameHandler::joinGame);
         Spark.put("/game/observe/:gameID", gameHandler::observeGame);
         Spark.delete("/db", this::clear);
+        Spark.get("/stats/ws", this::webSocketStats);
 
         // Error handling
         Spark.exception(UnauthorizedException.class, (e, req, res) -> {
@@ -66,13 +112,46 @@ public class Server {
         });
 
         Spark.awaitInitialization();
+        authSweeper.start();
+        gameArchiver.start();
         return Spark.port();
     }
 
 
     public void stop() {
+        authSweeper.stop();
+        gameArchiver.stop();
+        //no new requests or WebSocket messages, then let queued commands finish before the last flush
         Spark.stop();
         Spark.awaitStop();
+        if (webSocketHandler != null) {
+            webSocketHandler.shutdown();
+        }
+        gameActors.shutdown();
+        gameService.shutdown(); //flush moves that haven't hit the database yet
+        closeStorage(userDAO);
+        closeStorage(authDAO);
+        closeStorage(gameDAO);
+        if (gameDAO instanceof DBGameDAO) {
+            DatabaseManager.closeIdleConnections(); //after the last flush, so nothing borrows one again
+        }
+    }
+
+    //file DAOs hold open files, the others have nothing to close
+    private void closeStorage(Object dao) {
+        if (dao instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                System.err.println("Error closing storage: " + e.getMessage());
+            }
+        }
+    }
+
+    //bytes in and out of /ws by message type, and what compression saved
+    private Object webSocketStats(Request req, Response res) {
+        res.type("application/json");
+        return new Gson().toJson(webSocketMetrics.snapshot());
     }
 
     //updating my clear method to also clear game data
@@ -0,0 +1,94 @@
+package server;
+
+import model.AuthData;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the server knows about one WebSocket session: the options it connected with, who it
+ * authenticated as, and its seat in each game it's in.
+ * <p>
+ * The user is looked up when the session sends CONNECT or OBSERVE, and after that commands carrying
+ * the same token skip the auth lookup until AUTH_RECHECK has passed, so a token that expired still
+ * stops working. Logging out revokes it right away. Seats are worked out when the session joins a game
+ * and forgotten whenever the game's seats change, so the next command looks them up again.
+ */
+final class SessionContext {
+    static final long AUTH_RECHECK_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    enum Role {
+        WHITE,
+        BLACK,
+        OBSERVER
+    }
+
+    private final ClientOptions options;
+    private volatile AuthData auth;
+    private volatile long verifiedAt;
+    private final Map<Integer, Role> roles = new ConcurrentHashMap<>();
+
+    SessionContext(ClientOptions options) {
+        this.options = options;
+    }
+
+    ClientOptions options() {
+        return options;
+    }
+
+    void authenticated(AuthData auth, long now) {
+        AuthData before = this.auth;
+        if (before != null && !before.username().equals(auth.username())) {
+            roles.clear(); //somebody else now, their seats aren't the old user's
+        }
+        this.verifiedAt = now;
+        this.auth = auth;
+    }
+
+    //null until CONNECT or OBSERVE, and after a revoke
+    String username() {
+        AuthData current = auth;
+        return current == null ? null : current.username();
+    }
+
+    //true if authToken is the one this session checked less than AUTH_RECHECK ago
+    boolean trusts(String authToken, long now) {
+        AuthData current = auth;
+        return current != null && current.authToken().equals(authToken) && now - verifiedAt < AUTH_RECHECK_NANOS;
+    }
+
+    boolean holds(String authToken) {
+        AuthData current = auth;
+        return current != null && current.authToken().equals(authToken);
+    }
+
+    void revoke() {
+        auth = null;
+        roles.clear();
+    }
+
+    //null if it isn't known, e.g. because the seats changed
+    Role role(int gameID) {
+        return roles.get(gameID);
+    }
+
+    void setRole(int gameID, Role role) {
+        roles.put(gameID, role);
+    }
+
+    void forgetRole(int gameID) {
+        roles.remove(gameID);
+    }
+
+    //someone with both seats counts as WHITE, the service sorts out which color they're moving
+    static Role roleOf(String username, String whiteUsername, String blackUsername) {
+        if (username.equals(whiteUsername)) {
+            return Role.WHITE;
+        }
+        if (username.equals(blackUsername)) {
+            return Role.BLACK;
+        }
+        return Role.OBSERVER;
+    }
+}
@@ -0,0 +1,118 @@
+package server;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.messages.ServerMessage;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Messages waiting to go out to one WebSocket session.
+ * <p>
+ * send() only queues, the actual writes are asynchronous and one at a time, so whoever is sending
+ * (usually a game's command queue) never waits on a slow client. A LOAD_GAME or MOVE_DELTA that
+ * hasn't been written yet is dropped when a newer LOAD_GAME comes in, since the newer board replaces
+ * it anyway. A client that still falls more than maxQueued messages behind is disconnected rather
+ * than buffered forever.
+ */
+public class SessionOutbox {
+    public static final int DEFAULT_MAX_QUEUED = 256;
+
+    private final Session session;
+    private final int maxQueued;
+    private final boolean binary; //BinaryProtocol frames instead of JSON text
+    private final WebSocketMetrics metrics; //may be null
+    private final Deque<OutboundMessage> queue = new ArrayDeque<>();
+    private boolean writing; //a write is out and its callback will pick up the next message
+    private boolean closed;
+
+    public SessionOutbox(Session session) {
+        this(session, false, DEFAULT_MAX_QUEUED, null);
+    }
+
+    public SessionOutbox(Session session, int maxQueued) {
+        this(session, false, maxQueued, null);
+    }
+
+    public SessionOutbox(Session session, boolean binary, int maxQueued, WebSocketMetrics metrics) {
+        this.session = session;
+        this.binary = binary;
+        this.maxQueued = maxQueued;
+        this.metrics = metrics;
+    }
+
+    public void send(OutboundMessage message) {
+        OutboundMessage next;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (message.type() == ServerMessage.ServerMessageType.LOAD_GAME) {
+                //moved to the back, so the board still arrives after any notification about it.
+                //move deltas before it are covered by the new board too
+                queue.removeIf(queued -> queued.type() == ServerMessage.ServerMessageType.LOAD_GAME
+                        || queued.type() == ServerMessage.ServerMessageType.MOVE_DELTA);
+            }
+            queue.addLast(message);
+            if (queue.size() > maxQueued) {
+                closed = true;
+                queue.clear();
+                next = null;
+            } else if (writing) {
+                return;
+            } else {
+                writing = true;
+                next = queue.pollFirst();
+            }
+        }
+        if (next == null) {
+            System.err.println("Disconnecting " + session.getRemoteAddress() + ": more than " + maxQueued + " messages behind");
+            session.close(StatusCode.POLICY_VIOLATION, "too far behind");
+            return;
+        }
+        write(next);
+    }
+
+    //drops anything still queued, e.g. once the session has closed
+    public synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    //messages waiting behind the one being written, for tests
+    synchronized int queued() {
+        return queue.size();
+    }
+
+    private void write(OutboundMessage message) {
+        message.sendTo(session, binary, new WriteCallback() {
+            @Override
+            public void writeSuccess() {
+                if (metrics != null) {
+                    metrics.sent(message.type(), message.size(binary));
+                }
+                writeNext();
+            }
+
+            @Override
+            public void writeFailed(Throwable error) {
+                System.err.println("Error sending " + message.type() + ": " + error.getMessage());
+                close(); //the connection is broken, Jetty will call onClose
+            }
+        });
+    }
+
+    private void writeNext() {
+        OutboundMessage next;
+        synchronized (this) {
+            next = closed ? null : queue.pollFirst();
+            if (next == null) {
+                writing = false;
+                return;
+            }
+        }
+        write(next);
+    }
+}
@@ -0,0 +1,142 @@
+package server;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.eclipse.jetty.websocket.api.BatchMode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.extensions.ExtensionFactory;
+import org.eclipse.jetty.websocket.api.extensions.Frame;
+import org.eclipse.jetty.websocket.common.OpCode;
+import org.eclipse.jetty.websocket.common.extensions.compress.PerMessageDeflateExtension;
+import org.eclipse.jetty.websocket.common.scopes.WebSocketContainerScope;
+import org.eclipse.jetty.websocket.server.NativeWebSocketConfiguration;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+/**
+ * permessage-deflate for the /ws endpoint, for clients that offer it.
+ * <p>
+ * Jetty would compress every message once a client negotiates it. This swaps in a version that
+ * sends messages under the threshold (notifications, move deltas, binary frames) as they are, since
+ * deflating a few dozen bytes costs CPU and saves next to nothing. Boards and other big JSON still
+ * get compressed. Spark doesn't hand out its WebSocket factory, so install() gives Spark a Jetty
+ * server that swaps the extension in as it starts.
+ */
+public final class WebSocketCompression {
+    public static final int DEFAULT_THRESHOLD = 256; //bytes
+
+    private static final String[] DEFLATE_EXTENSIONS = {"permessage-deflate", "deflate-frame", "x-webkit-deflate-frame"};
+
+    private final boolean enabled;
+    private final int threshold;
+    private final WebSocketMetrics metrics; //what compression saved is counted here, next to the rest of this server's /ws numbers
+
+    /**
+     * @param compress false turns compression off even for clients that ask
+     * @param minBytes messages smaller than this go out uncompressed
+     */
+    public WebSocketCompression(boolean compress, int minBytes, WebSocketMetrics metrics) {
+        this.enabled = compress;
+        this.threshold = minBytes;
+        this.metrics = metrics;
+    }
+
+    //has to run before Spark starts its server
+    public void install() {
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory(new ServerFactory()));
+    }
+
+    private void configure(Server server) {
+        for (var handler : server.getChildHandlersByClass(ServletContextHandler.class)) {
+            Object config = ((ServletContextHandler) handler).getServletContext()
+                    .getAttribute(NativeWebSocketConfiguration.class.getName());
+            if (config instanceof NativeWebSocketConfiguration webSockets) {
+                ExtensionFactory extensions = webSockets.getFactory().getExtensionFactory();
+                for (String name : DEFLATE_EXTENSIONS) {
+                    extensions.unregister(name);
+                }
+                if (enabled) {
+                    //Jetty makes extensions by class, so they find their settings as a bean on the factory that made them
+                    webSockets.getFactory().addBean(this);
+                    extensions.register("permessage-deflate", ThresholdDeflateExtension.class);
+                }
+            }
+        }
+    }
+
+    //Jetty makes one of these per session that negotiated permessage-deflate
+    public static class ThresholdDeflateExtension extends PerMessageDeflateExtension {
+        private WebSocketCompression settings;
+
+        @Override
+        public void init(WebSocketContainerScope container) {
+            super.init(container);
+            if (container instanceof ContainerLifeCycle factory) {
+                settings = factory.getBean(WebSocketCompression.class);
+            }
+        }
+
+        @Override
+        public void outgoingFrame(Frame frame, WriteCallback callback, BatchMode batchMode) {
+            if (!OpCode.isDataFrame(frame.getOpCode())) {
+                super.outgoingFrame(frame, callback, batchMode);
+                return;
+            }
+            if (settings == null) {
+                super.outgoingFrame(frame, callback, batchMode); //not one of ours, plain deflate
+                return;
+            }
+            if (frame.getOpCode() != OpCode.CONTINUATION && frame.isFin() && frame.getPayloadLength() < settings.threshold) {
+                //straight past the compressor's queue. that's only safe because a session's outbox doesn't
+                //send the next message until this one's callback, so nothing compressed is still waiting
+                settings.metrics.compressionSkipped();
+                getNextOutgoing().outgoingFrame(frame, callback, batchMode);
+                return;
+            }
+            settings.metrics.compressing(frame.getOpCode() != OpCode.CONTINUATION, frame.getPayloadLength());
+            super.outgoingFrame(frame, callback, batchMode);
+        }
+
+        @Override
+        protected void nextOutgoingFrame(Frame frame, WriteCallback callback, BatchMode batchMode) {
+            if (settings != null && OpCode.isDataFrame(frame.getOpCode())) {
+                settings.metrics.compressed(frame.getPayloadLength());
+            }
+            super.nextOutgoingFrame(frame, callback, batchMode);
+        }
+    }
+
+    //same servers Spark makes by default, plus the hook that swaps the extension in
+    private class ServerFactory implements JettyServerFactory {
+        @Override
+        public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+            if (maxThreads <= 0) {
+                return hooked(new Server());
+            }
+            return hooked(new Server(new QueuedThreadPool(maxThreads, minThreads > 0 ? minThreads : 8,
+                    threadTimeoutMillis > 0 ? threadTimeoutMillis : 60000)));
+        }
+
+        @Override
+        public Server create(ThreadPool threadPool) {
+            return hooked(threadPool != null ? new Server(threadPool) : new Server());
+        }
+
+        //Spark adds the /ws context after making the server, so this waits until it's starting
+        private Server hooked(Server server) {
+            server.addLifeCycleListener(new AbstractLifeCycle.AbstractLifeCycleListener() {
+                @Override
+                public void lifeCycleStarting(LifeCycle event) {
+                    configure(server);
+                }
+            });
+            return server;
+        }
+    }
+}
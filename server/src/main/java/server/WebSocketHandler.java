@@ -4,28 +4,31 @@ import chess.ChessGame;
 import chess.ChessMove;
 import chess.InvalidMoveException;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import dataaccess.DataAccessException;
+import dataaccess.SeatChangedException;
+import dataaccess.UnauthorizedException;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.*;
 import service.GameService;
+import websocket.BinaryProtocol;
+import websocket.commands.CommandAdapterFactory;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.ObserveGameCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveDeltaMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 
-import java.io.IOException;
 import java.util.Map;
 import java.util.Set;
-import java.util.HashSet;
-import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Handles WebSocket connections and gameplay interactions for the chess application.
@@ -36,86 +39,175 @@ public class WebSocketHandler {
     private final GameService gameService;
     private final Gson gson;
 
-    //track sessions, usernames, and games
-    private final Map<Session, String> sessionToUser = new ConcurrentHashMap<>();
+    //track sessions, who they are, and games
+    private final Map<Session, SessionContext> contexts = new ConcurrentHashMap<>();
     private final Map<Integer, Set<Session>> gameToSessions = new ConcurrentHashMap<>();
-    private final Map<Integer, Boolean> gameInProgress = new ConcurrentHashMap<>();
     private final Map<Integer, Set<Session>> gameToObservers = new ConcurrentHashMap<>();
+    //the other direction, every game a session is in as player or observer. onClose only looks at these
+    private final Map<Session, Set<Integer>> sessionToGames = new ConcurrentHashMap<>();
+    //everything sent to a session goes through its outbox, so a slow client only holds up itself
+    private final Map<Session, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+    //bumped on every seat change, so a role worked out from a game read before one isn't remembered after it
+    private final AtomicLong seatChanges = new AtomicLong();
+    //commands for one game run one at a time, off Jetty's threads
+    private final GameActors actors;
+    private final WebSocketMetrics metrics;
+    //games with big audiences update their observers on this one's tick instead of right away
+    private final ObserverFanout observerFanout;
+
+    public static final int DEFAULT_OBSERVER_BATCH_AT = 100;
 
     public WebSocketHandler(GameService gameService) {
+        this(gameService, new GameActors(), new WebSocketMetrics(), DEFAULT_OBSERVER_BATCH_AT,
+                ObserverFanout.DEFAULT_TICK_MILLIS);
+    }
+
+    public WebSocketHandler(GameService gameService, GameActors actors, WebSocketMetrics metrics,
+                            int observerBatchAt, long observerTickMillis) {
         this.gameService = gameService;
-        this.gson = new Gson();
+        this.actors = actors;
+        this.metrics = metrics;
+        this.observerFanout = new ObserverFanout(this::send,
+                gameID -> gameToObservers.getOrDefault(gameID, Set.of()), observerBatchAt, observerTickMillis);
+        this.gson = new GsonBuilder().registerTypeAdapterFactory(new CommandAdapterFactory()).create();
+        gameService.addSeatListener(this::seatsChanged);
+        gameService.addLostMovesListener(this::movesLost);
+    }
+
+    //stops the observer tick, anything still waiting for it goes out first
+    public void shutdown() {
+        observerFanout.shutdown();
+    }
+
+    //for UserService's logout listener. sessions using the token have to authenticate again
+    public void authRevoked(String authToken) {
+        for (SessionContext context : contexts.values()) {
+            if (context.holds(authToken)) {
+                context.revoke();
+            }
+        }
+    }
+
+    //someone took or gave up a seat, so the roles remembered for that game may be wrong now
+    private void seatsChanged(int gameID) {
+        seatChanges.incrementAndGet();
+        for (Session session : gameToSessions.getOrDefault(gameID, Set.of())) {
+            forgetRole(session, gameID);
+        }
+        for (Session session : gameToObservers.getOrDefault(gameID, Set.of())) {
+            forgetRole(session, gameID);
+        }
+    }
+
+    //a write from another server won and moves we had already sent out are gone. put everyone back on the saved board
+    private void movesLost(int gameID) {
+        actors.submit(gameID, () -> {
+            try {
+                GameData game = gameService.getGame(gameID);
+                broadcastToPlayersAndObservers(gameID,
+                        createErrorMessage("Error: the game was changed elsewhere and recent moves were lost"));
+                broadcastToPlayersAndObservers(gameID, createLoadGameMessage(game));
+            } catch (DataAccessException e) {
+                System.err.println("Error reloading game " + gameID + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void forgetRole(Session session, int gameID) {
+        SessionContext context = contexts.get(session);
+        if (context != null) {
+            context.forgetRole(gameID);
+        }
     }
 
     @OnWebSocketConnect
     public void onConnect(Session session) {
         System.out.println("WebSocket connection established");
+        ClientOptions options = ClientOptions.from(session);
+        contexts.put(session, new SessionContext(options));
+        outboxes.put(session, new SessionOutbox(session, options.binary(), SessionOutbox.DEFAULT_MAX_QUEUED, metrics));
     }
 
     @OnWebSocketClose
     public void onClose(Session session, int statusCode, String reason) {
-        String username = sessionToUser.remove(session);
-
-        for (Map.Entry<Integer, Set<Session>> entry : gameToSessions.entrySet()) {
-            Integer gameId = entry.getKey();
-            Set<Session> gameSessions = entry.getValue();
-
-            if (gameSessions.remove(session) && username != null) {
-                try {
-                    GameData game = gameService.getGame(gameId);
-                    if (game != null) {
-                        String newWhite = username.equals(game.whiteUsername()) ? null : game.whiteUsername();
-                        String newBlack = username.equals(game.blackUsername()) ? null : game.blackUsername();
-
-                        GameData updatedGame = new GameData(
-                                game.gameID(),
-                                newWhite,
-                                newBlack,
-                                game.gameName(),
-                                game.game(),
-                                game.gameOver()
-                        );
-                        gameService.updateGame(updatedGame);
+        SessionContext context = contexts.remove(session);
+        String username = context == null ? null : context.username();
+        SessionOutbox outbox = outboxes.remove(session);
+        if (outbox != null) {
+            outbox.close();
+        }
+
+        Set<Integer> games = sessionToGames.remove(session);
+        if (games == null) {
+            return;
+        }
+        for (Integer gameId : games) {
+            removeFromGame(gameToObservers, gameId, session);
+            if (removeFromGame(gameToSessions, gameId, session) && username != null) {
+                //the seat change goes through the game's queue like any other command
+                actors.submit(gameId, () -> {
+                    try {
+                        gameService.leaveGame(username, gameId);
+                    } catch (DataAccessException e) {
+                        e.printStackTrace(); // Optional: replace with logging
                     }
-                } catch (DataAccessException e) {
-                    e.printStackTrace(); // Optional: replace with logging
-                }
 
-                for (Session otherSession : gameSessions) {
-                    sendNotification(otherSession, username + " has disconnected");
-                }
+                    broadcast(gameToSessions.getOrDefault(gameId, Set.of()), null,
+                            notification(username + " has disconnected"));
+                });
             }
         }
+    }
 
-        for (Map.Entry<Integer, Set<Session>> entry : gameToObservers.entrySet()) {
-            entry.getValue().remove(session);
+    @OnWebSocketMessage
+    public void onMessage(Session session, String message) {
+        try {
+            //one pass over the text, straight into the right command class
+            UserGameCommand command = gson.fromJson(message, UserGameCommand.class);
+            if (command == null) {
+                metrics.receivedInvalid(0);
+                sendError(session, "Error processing command: empty message");
+                return;
+            }
+            metrics.received(command.getCommandType(), WebSocketMetrics.utf8Length(message));
+            accept(session, command);
+        } catch (Exception e) {
+            metrics.receivedInvalid(WebSocketMetrics.utf8Length(message));
+            sendError(session, "Error processing command: " + e.getMessage());
         }
     }
 
+    //commands from clients using BinaryProtocol. they can still send JSON text too
     @OnWebSocketMessage
-    public void onMessage(Session session, String message) {
+    public void onMessage(Session session, byte[] buf, int offset, int length) {
         try {
-            JsonObject json = JsonParser.parseString(message).getAsJsonObject();
-            UserGameCommand.CommandType type = gson.fromJson(json.get("commandType"), UserGameCommand.CommandType.class);
+            UserGameCommand command = BinaryProtocol.decodeCommand(buf, offset, length);
+            metrics.received(command.getCommandType(), length);
+            accept(session, command);
+        } catch (Exception e) {
+            metrics.receivedInvalid(length);
+            sendError(session, "Error processing command: " + e.getMessage());
+        }
+    }
 
-            UserGameCommand command;
-            switch (type) {
-                case MAKE_MOVE:
-                    command = gson.fromJson(message, MakeMoveCommand.class);
-                    break;
-                case OBSERVE:
-                    ObserveGameCommand observeCommand = gson.fromJson(message, ObserveGameCommand.class);
-                    handleObserveGame(session, observeCommand);
-                    return;
-                default:
-                    command = gson.fromJson(message, UserGameCommand.class);
-                    break;
-            }
+    private void accept(Session session, UserGameCommand command) {
+        if (command.getGameID() == null) {
+            sendError(session, "Error processing command: no game ID");
+            return;
+        }
+        //decoding happens here, the rest waits its turn behind earlier commands for the same game
+        actors.submit(command.getGameID(), () -> dispatch(session, command));
+    }
 
+    private void dispatch(Session session, UserGameCommand command) {
+        try {
             switch (command.getCommandType()) {
                 case CONNECT:
                     handleConnect(session, command);
                     break;
+                case OBSERVE:
+                    handleObserveGame(session, (ObserveGameCommand) command);
+                    break;
                 case MAKE_MOVE:
                     handleMakeMove(session, command);
                     break;
@@ -125,6 +217,9 @@ public class WebSocketHandler {
                 case RESIGN:
                     handleResign(session, command);
                     break;
+                case RESYNC:
+                    handleResync(session, command);
+                    break;
                 default:
                     sendError(session, "Unknown command type");
             }
@@ -146,20 +241,24 @@ public class WebSocketHandler {
 
             AuthData authData = gameService.getAuth(authToken);
 
+            long seats = seatChanges.get();
             GameData game = gameService.getGame(gameId);
 
-            //store sesh info
-            sessionToUser.put(session, authData.username());
-            gameToSessions.computeIfAbsent(gameId, k -> new HashSet<>()).add(session);
+            SessionContext context = contexts.get(session);
+            if (context == null || !session.isOpen()) {
+                return; //closed while this was queued, onClose has already been through
+            }
+            //store sesh info. later commands use these instead of looking the user and game up again
+            context.authenticated(authData, System.nanoTime());
+            addToGame(gameToSessions, gameId, session);
+            rememberRole(context, gameId,
+                    SessionContext.roleOf(authData.username(), game.whiteUsername(), game.blackUsername()), seats);
 
             sendGameState(session, game); //send game state to client
 
             //let others know what's going on
-            for (Session otherSession : gameToSessions.getOrDefault(gameId, new HashSet<>())) {
-                if (!otherSession.equals(session)) {
-                    sendNotification(otherSession, authData.username() + " has joined the game");
-                }
-            }
+            broadcast(gameToSessions.getOrDefault(gameId, Set.of()), session,
+                    notification(authData.username() + " has joined the game"));
         } catch (DataAccessException e) {
             sendError(session, "Error connecting to game: " + e.getMessage());
         }
@@ -169,21 +268,29 @@ public class WebSocketHandler {
         try {
             int gameID = command.getGameID();
             String authToken = command.getAuthToken();
-            String username = gameService.getUsernameFromAuth(authToken);
+            AuthData authData = gameService.getAuth(authToken);
+            String username = authData.username();
 
+            long seats = seatChanges.get();
             GameData game = gameService.getGame(gameID);
             if (game == null) {
                 sendError(session, "Game doesn't exist.");
                 return;
             }
 
-            sessionToUser.put(session, username);
-            gameToObservers.putIfAbsent(gameID, ConcurrentHashMap.newKeySet());
-            gameToObservers.get(gameID).add(session);
-
-            LoadGameMessage message = new LoadGameMessage(game.game(), null);
+            SessionContext context = contexts.get(session);
+            if (context == null || !session.isOpen()) {
+                return;
+            }
+            context.authenticated(authData, System.nanoTime());
+            if (batchObservers(gameID)) {
+                //the board below is already past anything waiting for the tick, don't let that reach this session after it
+                observerFanout.drain(gameID);
+            }
+            addToGame(gameToObservers, gameID, session);
+            rememberRole(context, gameID, SessionContext.roleOf(username, game.whiteUsername(), game.blackUsername()), seats);
 
-            session.getRemote().sendString(gson.toJson(message));
+            sendGameState(session, game);
 
             broadcastToPlayersAndObservers(gameID, new NotificationMessage(username + " is observing the game."));
         } catch (Exception e) {
@@ -193,67 +300,60 @@ public class WebSocketHandler {
 
     private void handleMakeMove(Session session, UserGameCommand command) {
         try {
-            String authToken = command.getAuthToken();
             Integer gameId = command.getGameID();
-
-            GameData game = gameService.getGame(gameId);
-            String username = sessionToUser.get(session);
+            SessionContext context = contexts.get(session);
+            String username = authenticatedUser(context, command.getAuthToken());
 
             if (username == null) {
                 sendError(session, "User not recognized for this session.");
                 return;
             }
 
-            if (game.gameOver()) {
-                sendError(session, "The game is over. No moves allowed.");
-                return;
-            }
-
             if (!(command instanceof MakeMoveCommand)) {
                 sendError(session, "Invalid move command format.");
                 return;
             }
 
-            ChessMove move = ((MakeMoveCommand) command).getMove();
-            ChessGame.TeamColor movingColor = game.game().getBoard().getPiece(move.getStartPosition()).getTeamColor();
-
-            //turn base logic enforced
-            if ((movingColor == ChessGame.TeamColor.WHITE && !username.equals(game.whiteUsername())) ||
-                (movingColor == ChessGame.TeamColor.BLACK && !username.equals(game.blackUsername()))) {
+            if (roleIn(session, context, username, gameId) == SessionContext.Role.OBSERVER) {
                 sendError(session, "You can't move for your opponent!");
                 return;
             }
 
-            //make the move
-            GameData updatedGame = gameService.makeMove(authToken, gameId, move);
+            //make the move. the service checks the game is still on and whose piece it is
+            ChessMove move = ((MakeMoveCommand) command).getMove();
+            GameData updatedGame;
+            try {
+                updatedGame = gameService.makeMoveAs(username, gameId, move);
+            } catch (SeatChangedException e) {
+                context.forgetRole(gameId);
+                throw e;
+            }
+
+            //each message is serialized once no matter how many are watching
+            MoveUpdate update = new MoveUpdate(updatedGame, move);
+            OutboundMessage moved = notification(username + " made a move: " + move.toString());
 
-            for (Session s : gameToSessions.getOrDefault(gameId, new HashSet<>())) {
-                sendGameState(s, updatedGame);
+            for (Session s : gameToSessions.getOrDefault(gameId, Set.of())) {
+                send(s, update.forSession(s));
                 if (!s.equals(session)) {
-                    sendNotification(s, username + " made a move: " + move.toString());
+                    send(s, moved);
                 }
             }
 
-            for (Session observer : gameToObservers.getOrDefault(gameId, Set.of())) {
-                sendGameState(observer, updatedGame);
-                sendNotification(observer, username + " made a move: " + move.toString());
+            if (batchObservers(gameId)) {
+                //a big audience gets this on the next tick, so the players aren't waiting on it
+                observerFanout.moved(gameId, update::forSession, update::board);
+                observerFanout.notify(gameId, moved);
+            } else {
+                for (Session observer : gameToObservers.getOrDefault(gameId, Set.of())) {
+                    send(observer, update.forSession(observer));
+                    send(observer, moved);
+                }
             }
 
-            if (isGameOver(updatedGame.game())) {
-                gameInProgress.put(gameId, false);
-                GameData gameOverState = new GameData(
-                        updatedGame.gameID(),
-                        updatedGame.whiteUsername(),
-                        updatedGame.blackUsername(),
-                        updatedGame.gameName(),
-                        updatedGame.game(),
-                        true
-                );
-                gameService.updateGame(gameOverState);
-
-                for (Session s : gameToSessions.getOrDefault(gameId, new HashSet<>())) {
-                    sendNotification(s, "Game over!");
-                }
+            //service already marked and saved the game as over
+            if (updatedGame.gameOver()) {
+                broadcast(gameToSessions.getOrDefault(gameId, Set.of()), null, notification("Game over!"));
             }
         } catch (InvalidMoveException e) {
             sendError(session, "Invalid move: " + e.getMessage());
@@ -265,66 +365,66 @@ public class WebSocketHandler {
     private void handleLeave(Session session, UserGameCommand command) {
         try {
             Integer gameId = command.getGameID();
-            String username = sessionToUser.get(session);
-
-            Set<Session> gameSessions = gameToSessions.get(gameId);
-            if (gameSessions != null) {
-                gameSessions.remove(session);
+            SessionContext context = contexts.get(session);
+            String username = context == null ? null : context.username();
+            if (username == null) {
+                sendError(session, "User not recognized for this session.");
+                return;
             }
 
+            removeFromGame(gameToSessions, gameId, session);
+            removeFromGame(gameToObservers, gameId, session);
+            context.forgetRole(gameId);
+            sessionToGames.computeIfPresent(session, (s, games) -> {
+                games.remove(gameId);
+                return games.isEmpty() ? null : games;
+            });
+
             // Remove user from game in the DB
-            GameData game = gameService.getGame(gameId);
-            if (game != null) {
-                String newWhite = username.equals(game.whiteUsername()) ? null : game.whiteUsername();
-                String newBlack = username.equals(game.blackUsername()) ? null : game.blackUsername();
-
-                GameData updatedGame = new GameData(
-                        game.gameID(),
-                        newWhite,
-                        newBlack,
-                        game.gameName(),
-                        game.game(),
-                        game.gameOver()
-                );
-                gameService.updateGame(updatedGame);
-
-                for (Session otherSession : gameToSessions.getOrDefault(gameId, new HashSet<>())) {
-                    sendNotification(otherSession, username + " has left the game");
-                }
-            }
+            gameService.leaveGame(username, gameId);
+
+            broadcast(gameToSessions.getOrDefault(gameId, Set.of()), null, notification(username + " has left the game"));
         } catch (Exception e) {
             sendError(session, "Error leaving game: " + e.getMessage());
         }
     }
 
-    private void handleResign(Session session, UserGameCommand command) {
+    //the client's copy of the board went wrong, send it the real one
+    private void handleResync(Session session, UserGameCommand command) {
         try {
             int gameID = command.getGameID();
-            String authToken = command.getAuthToken();
-            String username = gameService.getUsernameFromAuth(authToken);
+            Set<Integer> games = sessionToGames.getOrDefault(session, Set.of());
+            if (!games.contains(gameID)) {
+                sendError(session, "Error: not connected to game " + gameID);
+                return;
+            }
+            sendGameState(session, gameService.getGame(gameID));
+        } catch (Exception e) {
+            sendError(session, "Error resyncing game: " + e.getMessage());
+        }
+    }
 
-            GameData game = gameService.getGame(gameID);
+    private void handleResign(Session session, UserGameCommand command) {
+        try {
+            int gameID = command.getGameID();
+            SessionContext context = contexts.get(session);
+            String username = authenticatedUser(context, command.getAuthToken());
+            if (username == null) {
+                username = gameService.getUsernameFromAuth(command.getAuthToken()); //resigning without connecting first
+            }
 
-            if (!username.equals(game.whiteUsername()) && !username.equals(game.blackUsername())) {
+            if (roleIn(session, context, username, gameID) == SessionContext.Role.OBSERVER) {
                 sendError(session, "Only players may resign.");
                 return;
             }
 
-            if (game.gameOver()) {
-                sendError(session, "Game is already over.");
-                return;
+            try {
+                gameService.resignAs(username, gameID); //checks the seat and game over against the state it saves
+            } catch (SeatChangedException e) {
+                forgetRole(session, gameID);
+                throw e;
             }
 
-            GameData updatedGame = new GameData(
-                    game.gameID(),
-                    game.whiteUsername(),
-                    game.blackUsername(),
-                    game.gameName(),
-                    game.game(),
-                    true // mark it over
-            );
-            gameService.updateGame(updatedGame);
-
             String resignMessage = username + " has resigned.";
             broadcastToPlayersAndObservers(gameID, new NotificationMessage(resignMessage));
 
@@ -333,72 +433,194 @@ public class WebSocketHandler {
         }
     }
 
-    private boolean isGameOver(ChessGame game) {
-        return game.isInCheckmate(ChessGame.TeamColor.WHITE) ||
-               game.isInCheckmate(ChessGame.TeamColor.BLACK) ||
-               game.isInStalemate(ChessGame.TeamColor.WHITE) ||
-               game.isInStalemate(ChessGame.TeamColor.BLACK);
+    //compute keeps the add and an empty set being dropped from crossing each other
+    private void addToGame(Map<Integer, Set<Session>> index, int gameId, Session session) {
+        index.compute(gameId, (id, sessions) -> {
+            Set<Session> set = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+            set.add(session);
+            return set;
+        });
+        sessionToGames.compute(session, (s, games) -> {
+            Set<Integer> set = games != null ? games : ConcurrentHashMap.newKeySet();
+            set.add(gameId);
+            return set;
+        });
     }
 
-    private void notifyAllPlayers(Integer gameId, GameData game, Session sourceSession, String action) {
-        Set<Session> gameSessions = gameToSessions.get(gameId);
-        if (gameSessions != null) {
-            for (Session playerSession : gameSessions) {
-                sendGameState(playerSession, game);
-                if (!playerSession.equals(sourceSession)) {
-                    String username = sessionToUser.get(sourceSession);
-                    sendNotification(playerSession, username + " " + action);
-                }
-            }
-        }
+    //false if the session wasn't there. games nobody is in anymore are dropped
+    private boolean removeFromGame(Map<Integer, Set<Session>> index, int gameId, Session session) {
+        boolean[] removed = {false};
+        index.computeIfPresent(gameId, (id, sessions) -> {
+            removed[0] = sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+        return removed[0];
     }
 
     private void broadcastToPlayersAndObservers(int gameID, ServerMessage message) {
-        Set<Session> players = gameToSessions.getOrDefault(gameID, Set.of());
-        Set<Session> observers = gameToObservers.getOrDefault(gameID, Set.of());
+        OutboundMessage outbound = OutboundMessage.of(gson, message);
+        broadcast(gameToSessions.getOrDefault(gameID, Set.of()), null, outbound);
+        if (batchObservers(gameID)) {
+            observerFanout.notify(gameID, outbound);
+        } else {
+            broadcast(gameToObservers.getOrDefault(gameID, Set.of()), null, outbound);
+        }
+    }
 
-        for (Session session : players) {
-            try {
-                session.getRemote().sendString(gson.toJson(message));
-            } catch (IOException e) {
-                System.err.println("Failed nroadcast to player: " + e.getMessage());
+    private boolean batchObservers(int gameID) {
+        return observerFanout.batching(gameID);
+    }
+
+    //same bytes to every session but `except`, which may be null
+    private void broadcast(Set<Session> sessions, Session except, OutboundMessage message) {
+        for (Session session : sessions) {
+            if (!session.equals(except)) {
+                send(session, message);
             }
         }
+    }
 
-        for (Session session : observers) {
-            try {
-                session.getRemote().sendString(gson.toJson(message));
-            } catch (IOException e) {
-                System.err.println("Failed broadcast to observer: " + e.getMessage());
-            }
+    private OutboundMessage notification(String text) {
+        return OutboundMessage.of(gson, createNotificationMessage(text));
+    }
+
+    //queues and returns, the write happens in the background
+    private void send(Session session, OutboundMessage message) {
+        //no outbox means onClose already ran (or onConnect never did), a new one would never be closed
+        SessionOutbox outbox = outboxes.get(session);
+        if (!session.isOpen() || outbox == null || !contexts.containsKey(session)) {
+            return;
         }
+        outbox.send(message);
     }
 
     private void sendGameState(Session session, GameData game) {
+        send(session, OutboundMessage.of(gson, createLoadGameMessage(game)));
+    }
+
+    private void sendError(Session session, String errorMessage) {
+        send(session, OutboundMessage.of(gson, createErrorMessage(errorMessage)));
+    }
+
+    private ClientOptions options(Session session) {
+        SessionContext context = contexts.get(session);
+        return context == null ? ClientOptions.DEFAULT : context.options();
+    }
+
+    /**
+     * The user behind a command. Only goes to the auth table if the token isn't the one the session
+     * already checked, or that check is more than SessionContext.AUTH_RECHECK_NANOS old.
+     *
+     * @return null if the session hasn't authenticated
+     */
+    private String authenticatedUser(SessionContext context, String authToken) throws DataAccessException {
+        if (context == null || context.username() == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (context.trusts(authToken, now)) {
+            return context.username();
+        }
         try {
-            ServerMessage message = createLoadGameMessage(game);
-            session.getRemote().sendString(gson.toJson(message));
-        } catch (IOException e) {
-            System.err.println("Error sending game state: " + e.getMessage());
+            AuthData auth = gameService.getAuth(authToken);
+            if (!auth.username().equals(context.username())) {
+                //a valid token, but not this session's user. commands don't get to switch who the session is
+                throw new UnauthorizedException("Error: that token belongs to someone other than this session's user");
+            }
+            context.authenticated(auth, now);
+            return auth.username();
+        } catch (UnauthorizedException e) {
+            if (context.holds(authToken)) {
+                context.revoke(); //expired or logged out since the last check
+            }
+            throw e;
         }
     }
 
-    private void sendNotification(Session session, String notificationText) {
-        try {
-            ServerMessage message = createNotificationMessage(notificationText);
-            session.getRemote().sendString(gson.toJson(message));
-        } catch (IOException e) {
-            System.err.println("Erorr sending notification: " + e.getMessage());
+    //the session's seat in a game, looked up again only after the game's seats changed
+    private SessionContext.Role roleIn(Session session, SessionContext context, String username, int gameID)
+            throws DataAccessException {
+        //the remembered roles are the session's own user's. a command can name someone else (RESIGN with a
+        //token the session never authenticated with), that one is looked up and not remembered. neither is a
+        //role in a game the session isn't in, seatsChanged wouldn't reach it to forget it
+        boolean own = context != null && username.equals(context.username())
+                && sessionToGames.getOrDefault(session, Set.of()).contains(gameID);
+        SessionContext.Role role = own ? context.role(gameID) : null;
+        if (role != null) {
+            return role;
+        }
+        long seats = seatChanges.get();
+        GameSummary game = gameService.getGameSummary(gameID);
+        role = SessionContext.roleOf(username, game.whiteUsername(), game.blackUsername());
+        if (own) {
+            rememberRole(context, gameID, role, seats);
         }
+        return role;
     }
 
-    private void sendError(Session session, String errorMessage) {
-        try {
-            ServerMessage message = createErrorMessage(errorMessage);
-            session.getRemote().sendString(gson.toJson(message));
-        } catch (IOException e) {
-            System.err.println("Error sending error message: " + e.getMessage());
+    /**
+     * Remembers a role worked out from a game read after seatChanges was `seats`. The session has to be in
+     * the game's index already: a seat change after the check below then reaches it through seatsChanged,
+     * and one before it shows up as a different count, so the role is dropped again either way.
+     */
+    private void rememberRole(SessionContext context, int gameID, SessionContext.Role role, long seats) {
+        context.setRole(gameID, role);
+        if (seatChanges.get() != seats) {
+            context.forgetRole(gameID);
+        }
+    }
+
+    private boolean wantsMoveDeltas(Session session) {
+        return options(session).moveDeltas();
+    }
+
+    //what a move looks like to each session: the whole board, or just the move for clients that asked.
+    //each form is built the first time somebody needs it
+    private class MoveUpdate {
+        private final GameData game;
+        private final ChessMove move;
+        private OutboundMessage state;
+        private OutboundMessage delta;
+
+        MoveUpdate(GameData game, ChessMove move) {
+            this.game = game;
+            this.move = move;
+        }
+
+        //synchronized since the observer fanout asks from its own threads
+        synchronized OutboundMessage board() {
+            if (state == null) {
+                state = OutboundMessage.of(gson, createLoadGameMessage(game));
+            }
+            return state;
+        }
+
+        synchronized OutboundMessage forSession(Session session) {
+            if (!wantsMoveDeltas(session)) {
+                return board();
+            }
+            if (delta == null) {
+                ChessGame chessGame = game.game();
+                delta = OutboundMessage.of(gson, new MoveDeltaMessage(move, chessGame.getMoveCount(),
+                        statusOf(game), chessGame.positionChecksum()));
+            }
+            return delta;
+        }
+    }
+
+    private MoveDeltaMessage.GameStatus statusOf(GameData game) {
+        ChessGame chessGame = game.game();
+        ChessGame.TeamColor toMove = chessGame.getTeamTurn();
+        if (chessGame.isInCheckmate(toMove)) {
+            return MoveDeltaMessage.GameStatus.CHECKMATE;
+        }
+        if (chessGame.isInStalemate(toMove)) {
+            return MoveDeltaMessage.GameStatus.STALEMATE;
+        }
+        if (game.gameOver()) {
+            return MoveDeltaMessage.GameStatus.OVER;
         }
+        return chessGame.isInCheck(toMove) ? MoveDeltaMessage.GameStatus.CHECK : MoveDeltaMessage.GameStatus.IN_PROGRESS;
     }
 
     private ServerMessage createLoadGameMessage(GameData game) {
@@ -0,0 +1,123 @@
+package server;
+
+import websocket.commands.UserGameCommand;
+import websocket.messages.ServerMessage;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Message and byte counts for the /ws endpoint, per command type coming in and per message type
+ * going out. Bytes are payload sizes as the handler sees them, before any compression ("compression"
+ * in the snapshot has what WebSocketCompression saved). Outgoing messages count once written, so
+ * boards dropped from a slow client's outbox don't.
+ */
+public class WebSocketMetrics {
+    private final Map<UserGameCommand.CommandType, Counter> received = new EnumMap<>(UserGameCommand.CommandType.class);
+    private final Map<ServerMessage.ServerMessageType, Counter> sent = new EnumMap<>(ServerMessage.ServerMessageType.class);
+    private final Counter invalid = new Counter(); //couldn't be decoded into a command
+    private final LongAdder compressedMessages = new LongAdder();
+    private final LongAdder skippedMessages = new LongAdder(); //under the compression threshold
+    private final LongAdder bytesBeforeCompression = new LongAdder();
+    private final LongAdder bytesAfterCompression = new LongAdder();
+
+    public WebSocketMetrics() {
+        for (UserGameCommand.CommandType type : UserGameCommand.CommandType.values()) {
+            received.put(type, new Counter());
+        }
+        for (ServerMessage.ServerMessageType type : ServerMessage.ServerMessageType.values()) {
+            sent.put(type, new Counter());
+        }
+    }
+
+    public void received(UserGameCommand.CommandType type, int bytes) {
+        received.get(type).add(bytes);
+    }
+
+    public void receivedInvalid(int bytes) {
+        invalid.add(bytes);
+    }
+
+    public void sent(ServerMessage.ServerMessageType type, int bytes) {
+        sent.get(type).add(bytes);
+    }
+
+    //a frame going into the compressor. a message's later frames come in with first false
+    public void compressing(boolean first, int bytes) {
+        if (first) {
+            compressedMessages.increment();
+        }
+        bytesBeforeCompression.add(bytes);
+    }
+
+    public void compressed(int bytes) {
+        bytesAfterCompression.add(bytes);
+    }
+
+    public void compressionSkipped() {
+        skippedMessages.increment();
+    }
+
+    public long bytesSent(ServerMessage.ServerMessageType type) {
+        return sent.get(type).bytes.sum();
+    }
+
+    public long bytesReceived(UserGameCommand.CommandType type) {
+        return received.get(type).bytes.sum();
+    }
+
+    //{"in": {"CONNECT": {"messages": 3, "bytes": 250}, ...}, "out": {...}, "compression": {...}}
+    public Map<String, Object> snapshot() {
+        Map<String, Object> in = new LinkedHashMap<>();
+        received.forEach((type, counter) -> in.put(type.name(), counter.snapshot()));
+        in.put("INVALID", invalid.snapshot());
+        Map<String, Object> out = new LinkedHashMap<>();
+        sent.forEach((type, counter) -> out.put(type.name(), counter.snapshot()));
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("in", in);
+        snapshot.put("out", out);
+        Map<String, Long> compression = new LinkedHashMap<>();
+        compression.put("compressedMessages", compressedMessages.sum());
+        compression.put("skippedMessages", skippedMessages.sum());
+        compression.put("bytesBeforeCompression", bytesBeforeCompression.sum());
+        compression.put("bytesAfterCompression", bytesAfterCompression.sum());
+        snapshot.put("compression", compression);
+        return snapshot;
+    }
+
+    //UTF-8 length without encoding the string
+    static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static class Counter {
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        void add(int size) {
+            messages.increment();
+            bytes.add(size);
+        }
+
+        Map<String, Long> snapshot() {
+            return Map.of("messages", messages.sum(), "bytes", bytes.sum());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package service;
+
+import dataaccess.AuthDAO;
+import dataaccess.DataAccessException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that deletes expired auth tokens.
+ * <p>
+ * Every interval it deletes expired tokens a batch at a time (see BatchedJob), so a big backlog
+ * never turns into one long delete holding locks on the auth table.
+ */
+public class AuthSweeper {
+    public static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final BatchedJob job;
+
+    public AuthSweeper(AuthDAO authDAO) {
+        this(authDAO, DEFAULT_INTERVAL_MILLIS, DEFAULT_BATCH_SIZE);
+    }
+
+    public AuthSweeper(AuthDAO authDAO, long intervalMillis, int batchSize) {
+        //tokens that had expired when the sweep started
+        this.job = new BatchedJob("auth-sweeper", intervalMillis, batchSize, authDAO::deleteExpired);
+    }
+
+    public void start() {
+        job.start();
+    }
+
+    public void stop() {
+        job.stop();
+    }
+
+    //returns the total number of tokens removed
+    public int sweep() throws DataAccessException {
+        return job.run();
+    }
+}
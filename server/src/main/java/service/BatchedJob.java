@@ -0,0 +1,89 @@
+package service;
+
+import dataaccess.DataAccessException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that works through a backlog a batch at a time.
+ * <p>
+ * Every interval it runs batches until one comes back short, with a short pause between batches,
+ * so a big backlog never turns into one long statement holding locks on the table.
+ */
+class BatchedJob {
+    private static final long BATCH_PAUSE_MILLIS = 20;
+
+    @FunctionalInterface
+    interface Batch {
+        //how many rows it handled. fewer than batchSize means that was the last of them
+        int run(long startedAt, int batchSize) throws DataAccessException;
+    }
+
+    private final String name; //thread name, and what the error log says was being done
+    private final long intervalMillis;
+    private final int batchSize;
+    private final Batch batch;
+    private ScheduledExecutorService executor;
+
+    BatchedJob(String name, long intervalMillis, int batchSize, Batch batch) {
+        this.name = name;
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+        this.batch = batch;
+    }
+
+    synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::runQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    //runs batches until one comes back short, returns the total
+    int run() throws DataAccessException {
+        long startedAt = System.currentTimeMillis();
+        int total = 0;
+        int done;
+        do {
+            done = batch.run(startedAt, batchSize);
+            total += done;
+            if (done == batchSize && !pause()) {
+                break;
+            }
+        } while (done == batchSize);
+        return total;
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (DataAccessException e) {
+            System.err.println("Error in " + name + ": " + e.getMessage());
+        }
+    }
+
+    //false if we were interrupted, i.e. stop() was called
+    private boolean pause() {
+        try {
+            Thread.sleep(BATCH_PAUSE_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package service;
+
+import dataaccess.DataAccessException;
+import dataaccess.GameDAO;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that moves finished games out of the live game table.
+ * <p>
+ * Games that ended more than minAge ago go to cold storage a batch at a time (see BatchedJob), so
+ * listing and scanning games only ever deals with games that are being played or just finished.
+ * Archived games can still be looked up by id.
+ */
+public class GameArchiver {
+    public static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    public static final long DEFAULT_MIN_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    private final BatchedJob job;
+
+    public GameArchiver(GameDAO gameDAO) {
+        this(gameDAO, DEFAULT_INTERVAL_MILLIS, DEFAULT_MIN_AGE_MILLIS, DEFAULT_BATCH_SIZE);
+    }
+
+    public GameArchiver(GameDAO gameDAO, long intervalMillis, long minAgeMillis, int batchSize) {
+        this.job = new BatchedJob("game-archiver", intervalMillis, batchSize,
+                (startedAt, limit) -> gameDAO.archiveFinishedGames(startedAt - minAgeMillis, limit));
+    }
+
+    public void start() {
+        job.start();
+    }
+
+    public void stop() {
+        job.stop();
+    }
+
+    //returns the total number of games archived
+    public int archive() throws DataAccessException {
+        return job.run();
+    }
+}
@@ -0,0 +1,366 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import dataaccess.ConflictException;
+import dataaccess.DataAccessException;
+import dataaccess.ForbiddenException;
+import dataaccess.GameDAO;
+import model.GameData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Write-behind cache for games that are being played.
+ * <p>
+ * The cached copy is the authoritative one while a game is active. Changes are marked dirty and
+ * written to the GameDAO by a background flusher every flush interval, so several moves on the
+ * same game turn into a single write. Anything that has to be durable right away (game end,
+ * shutdown) calls one of the flush methods directly.
+ */
+public class GameCache {
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 500;
+    private static final int FLUSH_BATCH_SIZE = 200;
+    private static final int MAX_REBASES = 3; //per write, before the conflict goes back to the caller
+    //clean games nobody has touched for this long get dropped so abandoned games don't pile up
+    private static final long IDLE_EVICT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final GameDAO gameDAO;
+    private final Map<Integer, CachedGame> games = new ConcurrentHashMap<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    private final Object flushLock = new Object(); //one writer at a time so flushes can't reorder
+    private final ScheduledExecutorService flusher;
+    //told the game ID when a conflicting write cost us moves that were already acknowledged
+    private final List<IntConsumer> lostMovesListeners = new CopyOnWriteArrayList<>();
+
+    public GameCache(GameDAO gameDAO, long flushIntervalMillis) {
+        this.gameDAO = gameDAO;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "game-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::backgroundFlush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //null when the game isn't active
+    public GameData peek(int gameID) {
+        CachedGame cached = games.get(gameID);
+        if (cached == null) {
+            return null;
+        }
+        cached.touch();
+        return cached.game;
+    }
+
+    //load through from the DAO. every change to a game (joins and resigns too) comes through here,
+    //games nobody is playing are evicted again after IDLE_EVICT_MILLIS
+    public GameData load(int gameID) throws DataAccessException {
+        GameData cached = peek(gameID);
+        if (cached != null) {
+            return cached;
+        }
+        GameData fromDAO = gameDAO.getGame(gameID);
+        CachedGame existing = games.putIfAbsent(gameID, new CachedGame(fromDAO));
+        return existing == null ? fromDAO : existing.game;
+    }
+
+    public void addLostMovesListener(IntConsumer listener) {
+        lostMovesListeners.add(listener);
+    }
+
+    public boolean contains(int gameID) {
+        return games.containsKey(gameID);
+    }
+
+    //write-behind. the DAO sees this on the next flush
+    public void put(GameData game) {
+        games.compute(game.gameID(), (id, cached) -> {
+            if (cached == null) {
+                return new CachedGame(game);
+            }
+            cached.game = game;
+            cached.touch();
+            return cached;
+        });
+        dirty.add(game.gameID());
+    }
+
+    //compare-and-set on the cached copy. false if the game changed (or left the cache) since expected was read
+    public boolean replace(GameData expected, GameData updated) {
+        boolean[] replaced = {false};
+        games.computeIfPresent(updated.gameID(), (id, cached) -> {
+            if (cached.game == expected) {
+                cached.game = updated;
+                cached.touch();
+                replaced[0] = true;
+            }
+            return cached;
+        });
+        if (replaced[0]) {
+            dirty.add(updated.gameID());
+        }
+        return replaced[0];
+    }
+
+    //write-through. the DAO has the change when this returns
+    public void putAndFlush(GameData game) throws DataAccessException {
+        put(game);
+        flush(game.gameID());
+    }
+
+    /**
+     * @return what was written, which is the cached game played again on someone else's row if the
+     * first write conflicted. null if there was nothing to write (already flushed, or not cached)
+     */
+    public GameData flush(int gameID) throws DataAccessException {
+        synchronized (flushLock) {
+            if (dirty.remove(gameID)) {
+                return write(gameID);
+            }
+            return null;
+        }
+    }
+
+    //flush every dirty game. multiple changes to the same game since the last flush are one write,
+    //and all the games go to the DAO as a batch (one transaction per FLUSH_BATCH_SIZE games for the database)
+    public void flushAll() throws DataAccessException {
+        synchronized (flushLock) {
+            List<Integer> ids = new ArrayList<>(dirty);
+            DataAccessException failure = null;
+            for (int from = 0; from < ids.size(); from += FLUSH_BATCH_SIZE) {
+                try {
+                    writeBatch(ids.subList(from, Math.min(ids.size(), from + FLUSH_BATCH_SIZE)));
+                } catch (DataAccessException e) {
+                    failure = e; //keep going so one bad batch doesn't hold up the rest
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    public void evict(int gameID) {
+        games.remove(gameID);
+    }
+
+    //drops everything, including unflushed changes. only for clearing the database
+    public void clear() {
+        synchronized (flushLock) {
+            dirty.clear();
+            games.clear();
+        }
+    }
+
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+            flushAll();
+        } catch (DataAccessException e) {
+            System.err.println("Error flushing games on shutdown: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //ConflictException only if our moves couldn't be kept (or kept losing MAX_REBASES times)
+    private GameData write(int gameID) throws DataAccessException {
+        for (int attempt = 1; ; attempt++) {
+            CachedGame cached = games.get(gameID);
+            if (cached == null) {
+                return null; //evicted or cleared since it was marked dirty
+            }
+            GameData game = cached.game;
+            try {
+                gameDAO.updateGame(game);
+            } catch (ConflictException e) {
+                GameData rebased = rebase(gameID);
+                if (rebased == null || attempt >= MAX_REBASES) {
+                    throw e;
+                }
+                if (!dirty.remove(gameID)) {
+                    return rebased; //nothing of ours to play again, the row is what we have now
+                }
+                continue;
+            } catch (ForbiddenException e) {
+                games.remove(gameID); //archived, no retry is going to get this written
+                throw e;
+            } catch (DataAccessException e) {
+                dirty.add(gameID); //retry next flush
+                throw e;
+            }
+            written(game);
+            return game;
+        }
+    }
+
+    private void writeBatch(List<Integer> gameIDs) throws DataAccessException {
+        List<GameData> batch = new ArrayList<>();
+        for (Integer gameID : gameIDs) {
+            CachedGame cached = games.get(gameID);
+            if (dirty.remove(gameID) && cached != null) {
+                batch.add(cached.game);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            gameDAO.updateGames(batch);
+        } catch (ConflictException e) {
+            //nothing was written. go one at a time so only the games that actually conflict get dropped
+            DataAccessException failure = null;
+            for (GameData game : batch) {
+                try {
+                    write(game.gameID());
+                } catch (DataAccessException single) {
+                    failure = single;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return;
+        } catch (DataAccessException e) {
+            batch.forEach(game -> dirty.add(game.gameID())); //retry next flush
+            throw e;
+        }
+        batch.forEach(this::written);
+    }
+
+    /**
+     * The row was changed outside this cache (another server). Its version wins, but moves made here
+     * since our last write have already been acknowledged to the players, so play them again on top
+     * of it and mark that dirty (unless there were none, then the cache just takes the row). If they
+     * don't fit any more (someone else moved, or the game ended) the cached copy is dropped so the
+     * next read sees the row, and the listeners are told.
+     *
+     * @return the game as it's cached now, null if it was dropped
+     */
+    private GameData rebase(int gameID) throws DataAccessException {
+        GameData theirs = gameDAO.getGame(gameID);
+        int[] lost = {0};
+        GameData[] rebased = {null};
+        games.computeIfPresent(gameID, (id, cached) -> {
+            rebased[0] = replay(cached.stored, cached.game, theirs);
+            if (rebased[0] == null) {
+                int unflushed = unflushedMoves(cached.stored, cached.game);
+                lost[0] = unflushed >= 0 ? unflushed : cached.game.game().getMoveCount();
+                return null;
+            }
+            cached.game = rebased[0];
+            cached.stored = theirs;
+            return cached;
+        });
+        if (rebased[0] == null) {
+            dirty.remove(gameID);
+            if (lost[0] > 0) {
+                System.err.println("Game " + gameID + ": lost " + lost[0] + " plies to a conflicting write");
+                for (IntConsumer listener : lostMovesListeners) {
+                    try {
+                        listener.accept(gameID);
+                    } catch (RuntimeException e) {
+                        System.err.println("Error telling a listener about game " + gameID + ": " + e);
+                    }
+                }
+            }
+            return null;
+        }
+        if (rebased[0] != theirs) {
+            dirty.add(gameID);
+        }
+        return rebased[0];
+    }
+
+    //theirs with the moves made in ours since stored played on it. null if they can't be
+    private static GameData replay(GameData stored, GameData ours, GameData theirs) {
+        int count = unflushedMoves(stored, ours);
+        if (count == 0) {
+            return theirs;
+        }
+        if (count < 0 || theirs.gameOver() || theirs.game() == null) {
+            return null;
+        }
+        List<ChessMove> moves = ours.game().getMoveHistory();
+        ChessGame replayed = new ChessGame(theirs.game());
+        try {
+            for (ChessMove move : moves.subList(moves.size() - count, moves.size())) {
+                replayed.makeMove(move);
+            }
+        } catch (InvalidMoveException e) {
+            return null;
+        }
+        return theirs.withGame(replayed, GameService.isGameOver(replayed));
+    }
+
+    //moves in ours that stored doesn't have, -1 if ours isn't stored plus some moves (the board was reset)
+    private static int unflushedMoves(GameData stored, GameData ours) {
+        if (ours.game() == null) {
+            return 0;
+        }
+        List<ChessMove> mine = ours.game().getMoveHistory();
+        List<ChessMove> base = stored.game() == null ? List.of() : stored.game().getMoveHistory();
+        if (mine.size() < base.size() || !mine.subList(0, base.size()).equals(base)) {
+            return -1;
+        }
+        return mine.size() - base.size();
+    }
+
+    //the row is a version ahead now. copies made since the write are still based on what we wrote, bump them too
+    private void written(GameData game) {
+        int version = game.version();
+        games.computeIfPresent(game.gameID(), (id, current) -> {
+            current.stored = game;
+            if (current.game.version() == version) {
+                current.game = current.game.withVersion(version + 1);
+            }
+            return current;
+        });
+    }
+
+    private void backgroundFlush() {
+        try {
+            flushAll();
+        } catch (DataAccessException e) {
+            System.err.println("Error flushing games: " + e.getMessage());
+        } catch (RuntimeException e) {
+            //anything escaping would cancel the schedule for good, and with it every later flush
+            System.err.println("Error flushing games: " + e);
+        }
+        long cutoff = System.currentTimeMillis() - IDLE_EVICT_MILLIS;
+        for (Integer gameID : games.keySet()) {
+            //compute so a put on the same game can't slip in between the check and the remove
+            games.computeIfPresent(gameID, (id, cached) ->
+                    cached.lastTouched < cutoff && !dirty.contains(id) ? null : cached);
+        }
+    }
+
+    private static class CachedGame {
+        private volatile GameData game;
+        private volatile GameData stored; //what the DAO has as far as we know, to tell which moves are unflushed
+        private volatile long lastTouched;
+
+        CachedGame(GameData game) {
+            this.game = game;
+            this.stored = game;
+            touch();
+        }
+
+        void touch() {
+            lastTouched = System.currentTimeMillis();
+        }
+    }
+}
@@ -1,46 +1,109 @@
 package service;
 
+import chess.ChessGame;
 import chess.ChessMove;
+import chess.ChessPiece;
 import chess.InvalidMoveException;
 import dataaccess.AuthDAO;
+import dataaccess.BadRequestException;
+import dataaccess.ConflictException;
 import dataaccess.DataAccessException;
 import dataaccess.GameDAO;
+import dataaccess.GameQuery;
+import dataaccess.SeatChangedException;
 import model.GameData;
 import model.AuthData;
+import model.GameSummary;
 import request.CreateGameRequest;
+import response.ListGamesResponse;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
 
 public class GameService {
+    public static final int MAX_GAME_NAME_LENGTH = 100; //game.gameName is a VARCHAR(100)
+    private static final int MAX_ATTEMPTS = 5; //per modifyGame call before giving up with a ConflictException
     private final GameDAO gameDAO;
     private final AuthDAO authDAO;
+    private final GameCache gameCache; //games being played. moves are written behind, everything else through
+    //told the game ID whenever someone takes or gives up a seat
+    private final List<IntConsumer> seatListeners = new CopyOnWriteArrayList<>();
 
     public GameService(GameDAO gameDAO, AuthDAO authDAO) {
+        this(gameDAO, authDAO, GameCache.DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    //flushIntervalMillis bounds how many moves can be lost if the server dies
+    public GameService(GameDAO gameDAO, AuthDAO authDAO, long flushIntervalMillis) {
         this.gameDAO = gameDAO;
         this.authDAO = authDAO;
+        this.gameCache = new GameCache(gameDAO, flushIntervalMillis);
     }
 
     public int createGame(CreateGameRequest req, String authToken) throws DataAccessException {
         authDAO.getAuth(authToken);
+        //checked here so every backend turns down the same names, not just the database
+        if (req.gameName() == null || req.gameName().length() > MAX_GAME_NAME_LENGTH) {
+            throw new BadRequestException("Error: bad request");
+        }
         return gameDAO.createGame(req.gameName());
     }
 
     public GameData getGame(int gameID) throws DataAccessException {
-        return gameDAO.getGame(gameID);
+        GameData cached = gameCache.peek(gameID);
+        return cached != null ? cached : gameDAO.getGame(gameID);
+    }
+
+    //for checks that only need the players and whether the game is over. never parses a board
+    public GameSummary getGameSummary(int gameID) throws DataAccessException {
+        GameData cached = gameCache.peek(gameID);
+        return cached != null ? GameSummary.of(cached) : gameDAO.getGameSummary(gameID);
+    }
+
+    //the game as it was after `ply` moves, for replays and for spectators catching up
+    public ChessGame replayGame(String authToken, int gameID, int ply) throws DataAccessException {
+        authDAO.getAuth(authToken);
+        GameData game = getGame(gameID);
+        if (game.game() == null || ply < 0 || ply > game.game().getMoveCount()) {
+            throw new DataAccessException("Error: bad request");
+        }
+        return game.game().positionAt(ply);
+    }
+
+    public List<GameSummary> listGames(String authToken) throws DataAccessException {
+        return listGames(authToken, GameQuery.firstPage()).games();
     }
 
-    public List<GameData> listGames(String authToken) throws DataAccessException {
+    //summaries only change on joins and game end, which are written through, so the DAO is never behind here
+    public ListGamesResponse listGames(String authToken, GameQuery query) throws DataAccessException {
         authDAO.getAuth(authToken);
-        return gameDAO.listGames();
+        //ask for one extra to find out if there is another page without a count query
+        List<GameSummary> games = gameDAO.listGameSummaries(query.withLimit(query.limit() + 1));
+        if (games.size() <= query.limit()) {
+            return new ListGamesResponse(games, null);
+        }
+        List<GameSummary> page = games.subList(0, query.limit());
+        return new ListGamesResponse(page, page.get(page.size() - 1).gameID());
     }
 
     public void updateGame(String authToken, GameData updatedGame) throws DataAccessException {
         authDAO.getAuth(authToken);
-        gameDAO.updateGame(updatedGame);
+        updateGame(updatedGame);
     }
 
+    //write-through. seats and game over need to be visible right away, only moves are written behind.
+    //this overwrites whatever is cached, so read-modify-write callers should use joinGame/leaveGame/etc instead
     public void updateGame(GameData updatedGame) throws DataAccessException {
-        gameDAO.updateGame(updatedGame);
+        if (!gameCache.contains(updatedGame.gameID())) {
+            gameDAO.updateGame(updatedGame);
+            return;
+        }
+        gameCache.putAndFlush(updatedGame);
+        if (updatedGame.gameOver()) {
+            gameCache.evict(updatedGame.gameID()); //game is done, no reason to keep it in memory
+        }
     }
 
     public AuthData getAuth(String authToken) throws DataAccessException {
@@ -48,52 +111,69 @@ public class GameService {
     }
 
     public void clear() {
+        gameCache.clear();
         gameDAO.clear();
     }
 
+    //writes out anything still waiting on the flusher
+    public void shutdown() {
+        gameCache.shutdown();
+    }
+
+    public void addSeatListener(IntConsumer listener) {
+        seatListeners.add(listener);
+    }
+
+    //told the game ID when moves that were already acknowledged had to be thrown away, see GameCache
+    public void addLostMovesListener(IntConsumer listener) {
+        gameCache.addLostMovesListener(listener);
+    }
+
     public void joinGame(String authToken, int gameID, String playerColor) throws DataAccessException {
         var auth = authDAO.getAuth(authToken);
-        GameData game = gameDAO.getGame(gameID);
 
         if (playerColor == null || !List.of("WHITE", "BLACK").contains(playerColor.toUpperCase())) {
             throw new DataAccessException("Error: bad request");
         }
 
-        boolean whiteTaken = game.whiteUsername() != null && !game.whiteUsername().equals(auth.username());
-        boolean blackTaken = game.blackUsername() != null && !game.blackUsername().equals(auth.username());
+        //two people grabbing the same seat: the loser re-reads, sees the seat taken and gets a 403
+        modifyGame(gameID, false, game -> {
+            boolean whiteTaken = game.whiteUsername() != null && !game.whiteUsername().equals(auth.username());
+            boolean blackTaken = game.blackUsername() != null && !game.blackUsername().equals(auth.username());
 
-        if (("WHITE".equalsIgnoreCase(playerColor) && whiteTaken) ||
-            ("BLACK".equalsIgnoreCase(playerColor) && blackTaken)) {
-            throw new DataAccessException("Error: already taken");
-        }
+            if (("WHITE".equalsIgnoreCase(playerColor) && whiteTaken) ||
+                ("BLACK".equalsIgnoreCase(playerColor) && blackTaken)) {
+                throw new DataAccessException("Error: already taken");
+            }
 
-        GameData updatedGame;
-        if ("WHITE".equalsIgnoreCase(playerColor)) {
-            updatedGame = new GameData(
-                    game.gameID(),
-                    auth.username(),
-                    game.blackUsername(),
-                    game.gameName(),
-                    game.game(),
-                    game.gameOver()
-            );
-        } else {
-            updatedGame = new GameData(
-                    game.gameID(),
-                    game.whiteUsername(),
-                    auth.username(),
-                    game.gameName(),
-                    game.game(),
-                    game.gameOver()
-            );
-        }
+            if ("WHITE".equalsIgnoreCase(playerColor)) {
+                return game.withPlayers(auth.username(), game.blackUsername());
+            }
+            return game.withPlayers(game.whiteUsername(), auth.username());
+        });
+        seatsChanged(gameID);
+    }
 
-        gameDAO.updateGame(updatedGame);
+    //frees whichever seat username had. returns the game as it is afterwards
+    public GameData leaveGame(String username, int gameID) throws DataAccessException {
+        GameData game = modifyGame(gameID, false, current -> {
+            String newWhite = username.equals(current.whiteUsername()) ? null : current.whiteUsername();
+            String newBlack = username.equals(current.blackUsername()) ? null : current.blackUsername();
+            return current.withPlayers(newWhite, newBlack);
+        });
+        seatsChanged(gameID);
+        return game;
+    }
+
+    private void seatsChanged(int gameID) {
+        for (IntConsumer listener : seatListeners) {
+            listener.accept(gameID);
+        }
     }
 
     public void observeGame(String authToken, int gameID) throws DataAccessException {
         var auth = authDAO.getAuth(authToken);
-        var game = gameDAO.getGame(gameID);
+        var game = getGameSummary(gameID);
 
         if (auth == null || game == null) {
             throw new DataAccessException("Error: unauthorized or game not found");
@@ -101,52 +181,130 @@ public class GameService {
     }
 
     public GameData makeMove(String authToken, int gameId, ChessMove move) throws DataAccessException, InvalidMoveException {
-        AuthData auth = getAuth(authToken);
-        GameData game = getGame(gameId);
+        getAuth(authToken);
+        return move(gameId, move, null);
+    }
 
-        if (game.gameOver()) {
-            throw new DataAccessException("The game is over. No moves allowed.");
-        }
+    /**
+     * A move by someone who was already authenticated, e.g. over a WebSocket session that did it when it
+     * connected. Whether they have the seat for the piece being moved is checked against the game the move
+     * is made on, and someone who has no seat at all anymore gets a SeatChangedException.
+     */
+    public GameData makeMoveAs(String username, int gameId, ChessMove move) throws DataAccessException, InvalidMoveException {
+        return move(gameId, move, username);
+    }
 
-        game.game().makeMove(move);
+    //username null skips the seat checks
+    private GameData move(int gameId, ChessMove move, String username) throws DataAccessException, InvalidMoveException {
+        return modifyGame(gameId, true, game -> {
+            if (game.gameOver()) {
+                throw new DataAccessException("The game is over. No moves allowed.");
+            }
+            if (username != null) {
+                checkSeat(game, username, move);
+            }
 
-        GameData updatedGame = new GameData(
-                game.gameID(),
-                game.whiteUsername(),
-                game.blackUsername(),
-                game.gameName(),
-                game.game(),
-                game.gameOver()
-        );
+            //move on a copy so the flusher never serializes a half-made move
+            ChessGame chessGame = new ChessGame(game.game());
+            chessGame.makeMove(move);
+            return game.withGame(chessGame, isGameOver(chessGame));
+        });
+    }
+
+    private static void checkSeat(GameData game, String username, ChessMove move) throws DataAccessException {
+        if (!username.equals(game.whiteUsername()) && !username.equals(game.blackUsername())) {
+            throw new SeatChangedException("Error: " + username + " isn't playing this game anymore");
+        }
+        ChessPiece piece = game.game().getBoard().getPiece(move.getStartPosition());
+        if (piece != null && !username.equals(piece.getTeamColor() == ChessGame.TeamColor.WHITE
+                ? game.whiteUsername() : game.blackUsername())) {
+            throw new DataAccessException("You can't move for your opponent!");
+        }
+    }
 
-        updateGame(authToken, updatedGame);
-        return updatedGame;
+    static boolean isGameOver(ChessGame game) {
+        return game.isInCheckmate(ChessGame.TeamColor.WHITE) ||
+               game.isInCheckmate(ChessGame.TeamColor.BLACK) ||
+               game.isInStalemate(ChessGame.TeamColor.WHITE) ||
+               game.isInStalemate(ChessGame.TeamColor.BLACK);
     }
 
     public GameData resignGame(String authToken, int gameId) throws DataAccessException {
-        AuthData auth = getAuth(authToken);
-        GameData game = getGame(gameId);
+        return resignAs(getAuth(authToken).username(), gameId);
+    }
 
-        if (game.gameOver()) {
-            throw new DataAccessException("Game is already over.");
-        }
+    //for callers that already know who the user is
+    public GameData resignAs(String username, int gameId) throws DataAccessException {
+        return modifyGame(gameId, false, game -> {
+            if (game.gameOver()) {
+                throw new DataAccessException("Game is already over.");
+            }
+
+            if (!username.equals(game.whiteUsername()) && !username.equals(game.blackUsername())) {
+                throw new DataAccessException("Only players may resign.");
+            }
+
+            return game.withGameOver(true);
+        });
+    }
 
-        if (!auth.username().equals(game.whiteUsername()) &&
-            !auth.username().equals(game.blackUsername())) {
-            throw new DataAccessException("Only players may resign.");
+    /**
+     * Optimistic read-modify-write on one game. No lock is held while the change runs; if another
+     * request changed the game in the meantime the change is thrown away and run again on a fresh
+     * copy, so checks like "is this seat free" are always made against the state that gets saved.
+     * <p>
+     * Everything goes through the cache so there is one copy to compare against. Moves are written
+     * behind, everything else (and the move that ends the game) is written through before returning.
+     */
+    private <E extends Exception> GameData modifyGame(int gameID, boolean isMove, GameChange<E> change)
+            throws DataAccessException, E {
+        for (int attempt = 1; ; attempt++) {
+            GameData current = gameCache.load(gameID);
+            GameData updated = change.apply(current);
+            try {
+                GameData saved = commit(current, updated, !isMove || updated.gameOver());
+                if (saved != null) {
+                    return saved;
+                }
+            } catch (ConflictException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            if (attempt >= MAX_ATTEMPTS) {
+                throw new ConflictException("Error: game " + gameID + " is busy, try again");
+            }
         }
+    }
 
-        GameData updatedGame = new GameData(
-                game.gameID(),
-                game.whiteUsername(),
-                game.blackUsername(),
-                game.gameName(),
-                game.game(),
-                true
-        );
+    //the game as saved, null if someone else changed it first
+    private GameData commit(GameData current, GameData updated, boolean writeThrough) throws DataAccessException {
+        if (!gameCache.replace(current, updated)) {
+            return null;
+        }
+        if (!writeThrough) {
+            return updated;
+        }
+        GameData saved = gameCache.flush(updated.gameID());
+        if (saved == null) {
+            saved = gameCache.peek(updated.gameID()); //the background flusher wrote it first
+        }
+        //a conflicting write only carries our moves over, a seat change or resign has to be made again
+        if (saved == null || !Objects.equals(saved.whiteUsername(), updated.whiteUsername())
+                || !Objects.equals(saved.blackUsername(), updated.blackUsername())
+                || saved.gameOver() != updated.gameOver()) {
+            return null;
+        }
+        if (saved.gameOver()) {
+            gameCache.evict(saved.gameID()); //game is done, no reason to keep it in memory
+        }
+        return saved;
+    }
 
-        updateGame(authToken, updatedGame);
-        return updatedGame;
+    @FunctionalInterface
+    private interface GameChange<E extends Exception> {
+        GameData apply(GameData current) throws DataAccessException, E;
     }
 
     public String getUsernameFromAuth(String authToken) throws DataAccessException {
@@ -9,10 +9,17 @@ import request.LoginRequest;
 import request.RegisterRequest;
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
 public class UserService {
+    public static final int MAX_USERNAME_LENGTH = 50; //user.username and the game seats are VARCHAR(50)
 
     private final UserDAO userDAO;
     private final AuthDAO authDAO;
+    //told each token that's logged out, e.g. so WebSocket sessions stop trusting it
+    private final List<Consumer<String>> logoutListeners = new CopyOnWriteArrayList<>();
 
     public UserService(UserDAO userDAO, AuthDAO authDAO) {
         this.userDAO = userDAO;
@@ -20,7 +27,10 @@ public class UserService {
     }
     //named method makeUser so there is no confusion with the lower level method
     public AuthData makeUser(RegisterRequest req) throws DataAccessException {
-
+        //checked here so every backend turns down the same names, not just the database
+        if (req.username() != null && req.username().length() > MAX_USERNAME_LENGTH) {
+            throw new BadRequestException("Error: bad request");
+        }
         UserData userData = new UserData(req.username(), req.password(), req.email());
         userDAO.createUser(userData);
         String authToken = authDAO.makeAuth(userData.username()); //makeAuth generates token
@@ -43,8 +53,15 @@ public class UserService {
         return BCrypt.checkpw(password, user.password());
     }
 
+    public void addLogoutListener(Consumer<String> listener) {
+        logoutListeners.add(listener);
+    }
+
     public void logoutUser(String authToken) throws DataAccessException {
         authDAO.deleteAuth(authToken);
+        for (Consumer<String> listener : logoutListeners) {
+            listener.accept(authToken);
+        }
     }
 
     public void clear() {
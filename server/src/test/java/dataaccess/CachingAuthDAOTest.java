@@ -0,0 +1,85 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingAuthDAOTest {
+    private CountingAuthDAO delegate;
+    private CachingAuthDAO authDAO;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = new CountingAuthDAO();
+        authDAO = new CachingAuthDAO(delegate, 100, 60_000, 60_000);
+    }
+
+    @Test
+    public void passHotTokenServedFromCache() throws DataAccessException {
+        String authToken = delegate.makeAuth("goodBoy");
+
+        authDAO.getAuth(authToken);
+        AuthData second = authDAO.getAuth(authToken);
+
+        assertEquals("goodBoy", second.username());
+        assertEquals(1, delegate.lookups, "second lookup should not reach the delegate");
+    }
+
+    @Test
+    public void passMakeAuthWarmsCache() throws DataAccessException {
+        String authToken = authDAO.makeAuth("goodBoy");
+
+        assertEquals("goodBoy", authDAO.getAuth(authToken).username());
+        assertEquals(0, delegate.lookups, "new token should already be cached");
+    }
+
+    @Test
+    public void failUnknownTokenCachedAsMissing() {
+        assertThrows(UnauthorizedException.class, () -> authDAO.getAuth("nope"));
+        assertThrows(UnauthorizedException.class, () -> authDAO.getAuth("nope"));
+
+        assertEquals(1, delegate.lookups, "bad token should only be looked up once");
+    }
+
+    @Test
+    public void failDeletedTokenRejectedRightAway() throws DataAccessException {
+        String authToken = authDAO.makeAuth("goodBoy");
+        authDAO.getAuth(authToken);
+
+        authDAO.deleteAuth(authToken);
+
+        assertThrows(UnauthorizedException.class, () -> authDAO.getAuth(authToken));
+    }
+
+    @Test
+    public void failClearDropsCachedTokens() throws DataAccessException {
+        String authToken = authDAO.makeAuth("goodBoy");
+
+        authDAO.clear();
+
+        assertThrows(UnauthorizedException.class, () -> authDAO.getAuth(authToken));
+    }
+
+    @Test
+    public void passCacheStaysBounded() throws DataAccessException {
+        CachingAuthDAO small = new CachingAuthDAO(delegate, 1, 60_000, 60_000);
+        String first = small.makeAuth("first");
+        small.makeAuth("second"); //pushes first out
+
+        small.getAuth(first);
+
+        assertEquals(1, delegate.lookups, "evicted token should be read from the delegate");
+    }
+
+    //memory dao that counts how often it gets asked for a token
+    private static class CountingAuthDAO extends MemoryAuthDAO {
+        private int lookups;
+
+        @Override
+        public AuthData getAuth(String authToken) throws DataAccessException {
+            lookups++;
+            return super.getAuth(authToken);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dataaccess;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+
+    @BeforeEach
+    public void setUp() throws DataAccessException {
+        DatabaseManager.createTables();
+    }
+
+    @Test
+    public void passClosedConnectionIsReused() throws DataAccessException, SQLException {
+        Connection first;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            first = conn.unwrap(Connection.class);
+        }
+        try (Connection conn = DatabaseManager.getConnection()) {
+            assertSame(first, conn.unwrap(Connection.class), "closing should return the connection to the pool");
+        }
+    }
+
+    @Test
+    public void passConnectionOutDuringCloseIdleClosedOnReturn() throws DataAccessException, SQLException {
+        Connection raw;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            raw = conn.unwrap(Connection.class);
+            DatabaseManager.closeIdleConnections();
+        }
+        assertTrue(raw.isClosed(), "a connection out while the pool was closing shouldn't go back into it");
+    }
+
+    @Test
+    public void passOpenTransactionRolledBackOnReturn() throws DataAccessException, SQLException {
+        new DBUserDAO().clear();
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            stmt.executeUpdate(
+                    "INSERT INTO user (username, password, email) VALUES ('leaked', 'x', 'x@x.com')");
+        }
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            assertTrue(conn.getAutoCommit(), "next borrower should get autocommit back");
+        }
+        assertThrows(DataAccessException.class, () -> new DBUserDAO().getUser("leaked"));
+    }
+
+    @Test
+    public void failUseAfterClose() throws DataAccessException, SQLException {
+        Connection conn = DatabaseManager.getConnection();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+    }
+}
@@ -105,4 +105,28 @@ public class DBAuthDAOTest {
         }, "Second token should be cleared");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void failGetAuthExpired() throws DataAccessException {
+        DBAuthDAO shortLivedDAO = new DBAuthDAO(0); //expires as soon as its made
+        String authToken = shortLivedDAO.makeAuth("goodBoy");
+
+        assertThrows(UnauthorizedException.class, () -> {
+            shortLivedDAO.getAuth(authToken);
+        }, "Expired token should be rejected");
+    }
+
+    @Test
+    public void passDeleteExpired() throws DataAccessException {
+        DBAuthDAO shortLivedDAO = new DBAuthDAO(0);
+        shortLivedDAO.makeAuth("goodBoy");
+        shortLivedDAO.makeAuth("goodBoy");
+        shortLivedDAO.makeAuth("goodBoy");
+        String liveToken = authDAO.makeAuth("goodBoy");
+
+        long now = System.currentTimeMillis() + 1;
+        assertEquals(2, authDAO.deleteExpired(now, 2), "Should stop at the batch limit");
+        assertEquals(1, authDAO.deleteExpired(now, 2), "Should delete what's left");
+        assertEquals(0, authDAO.deleteExpired(now, 2), "Nothing expired should be left");
+        assertEquals("goodBoy", authDAO.getAuth(liveToken).username(), "Live token should survive the sweep");
+    }
+}
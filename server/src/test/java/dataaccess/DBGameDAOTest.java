@@ -1,9 +1,13 @@
 package dataaccess;
 
 import chess.ChessGame;
+import com.google.gson.Gson;
 import model.GameData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 // import dataaccess.DataAccessException;
 // import dataaccess.BadRequestException;
@@ -58,6 +62,38 @@ public class DBGameDAOTest {
         assertTrue(gameDAO.listGames().isEmpty(), "empty list when no games exisit");
     }
 
+    @Test
+    public void passListGameSummariesFiltered() throws DataAccessException {
+        gameDAO.createGame("Open");
+        int fullId = gameDAO.createGame("Full");
+        GameData full = gameDAO.getGame(fullId);
+        gameDAO.updateGame(new GameData(fullId, "alice", "bob", full.gameName(), full.game(), true));
+
+        var open = gameDAO.listGameSummaries(new GameQuery(0, 10, true, null, null));
+        var alices = gameDAO.listGameSummaries(new GameQuery(0, 10, false, "alice", null));
+        var bobs = gameDAO.listGameSummaries(new GameQuery(0, 10, false, "bob", null));
+        var unfinished = gameDAO.listGameSummaries(new GameQuery(0, 10, false, null, false));
+
+        assertEquals(1, open.size());
+        assertEquals("Open", open.get(0).gameName());
+        assertEquals(fullId, alices.get(0).gameID());
+        assertEquals(fullId, bobs.get(0).gameID(), "black seat should match too");
+        assertEquals(1, unfinished.size(), "finished game should be filtered out");
+    }
+
+    @Test
+    public void passListGameSummariesPaged() throws DataAccessException {
+        for (int i = 0; i < 5; i++) {
+            gameDAO.createGame("Game " + i);
+        }
+
+        var firstPage = gameDAO.listGameSummaries(new GameQuery(0, 2, false, null, null));
+        var secondPage = gameDAO.listGameSummaries(new GameQuery(firstPage.get(1).gameID(), 2, false, null, null));
+
+        assertEquals(2, firstPage.size());
+        assertEquals(firstPage.get(1).gameID() + 1, secondPage.get(0).gameID(), "next page starts after the cursor");
+    }
+
     @Test //updates to game scenarios
     public void passUpdateGameValid() throws DataAccessException {
         int gameId = gameDAO.createGame("Update Test");
@@ -77,6 +113,18 @@ public class DBGameDAOTest {
         assertEquals("whiteUser", result.whiteUsername(), "White username should update");
     }
 
+    @Test
+    public void failUpdateGameStaleVersion() throws DataAccessException {
+        int gameId = gameDAO.createGame("Version Test");
+        GameData original = gameDAO.getGame(gameId);
+        gameDAO.updateGame(original.withPlayers("whiteUser", null));
+
+        //original is still at the old version, so this would overwrite whiteUser
+        assertThrows(ConflictException.class, () -> gameDAO.updateGame(original.withPlayers(null, "blackUser")));
+        assertEquals("whiteUser", gameDAO.getGame(gameId).whiteUsername(), "first update should stick");
+        assertEquals(original.version() + 1, gameDAO.getGame(gameId).version());
+    }
+
     @Test
     public void failUpdateGameInvalidId() {
         GameData fakeGame = new GameData(999, null, null, "Fake", new ChessGame(), false);
@@ -86,6 +134,116 @@ public class DBGameDAOTest {
         }, "updates to nonexistent game should throw exception");
     }
 
+    @Test
+    public void passCreateGamesBatch() throws DataAccessException {
+        var ids = gameDAO.createGames(List.of("One", "Two", "Three"));
+
+        assertEquals(List.of(1, 2, 3), ids, "ids should come back in the order of the names");
+        assertEquals("Three", gameDAO.getGame(ids.get(2)).gameName());
+    }
+
+    @Test
+    public void failCreateGamesBadNameWritesNothing() {
+        assertThrows(BadRequestException.class, () -> gameDAO.createGames(List.of("One", "")));
+        assertDoesNotThrow(() -> assertTrue(gameDAO.listGames().isEmpty()));
+    }
+
+    @Test
+    public void passUpdateGamesBatch() throws DataAccessException {
+        var ids = gameDAO.createGames(List.of("One", "Two"));
+
+        gameDAO.updateGames(List.of(
+                gameDAO.getGame(ids.get(0)).withPlayers("alice", null),
+                gameDAO.getGame(ids.get(1)).withPlayers(null, "bob")));
+
+        assertEquals("alice", gameDAO.getGame(ids.get(0)).whiteUsername());
+        assertEquals("bob", gameDAO.getGame(ids.get(1)).blackUsername());
+        assertEquals(1, gameDAO.getGame(ids.get(1)).version());
+    }
+
+    @Test
+    public void failUpdateGamesConflictRollsBackAll() throws DataAccessException {
+        var ids = gameDAO.createGames(List.of("One", "Two"));
+        GameData staleTwo = gameDAO.getGame(ids.get(1));
+        gameDAO.updateGame(staleTwo.withPlayers("carol", null));
+
+        assertThrows(ConflictException.class, () -> gameDAO.updateGames(List.of(
+                gameDAO.getGame(ids.get(0)).withPlayers("alice", null),
+                staleTwo.withPlayers(null, "bob"))));
+
+        assertNull(gameDAO.getGame(ids.get(0)).whiteUsername(), "the good update should be rolled back too");
+        assertEquals("carol", gameDAO.getGame(ids.get(1)).whiteUsername());
+    }
+
+    @Test
+    public void passGameSummaryWithoutBoard() throws DataAccessException {
+        int gameId = gameDAO.createGame("Summary Test");
+        gameDAO.updateGame(gameDAO.getGame(gameId).withPlayers("whiteUser", null));
+
+        var summary = gameDAO.getGameSummary(gameId);
+        assertEquals("whiteUser", summary.whiteUsername());
+        assertNull(summary.blackUsername());
+        assertFalse(summary.gameOver());
+        assertThrows(DataAccessException.class, () -> gameDAO.getGameSummary(999));
+    }
+
+    @Test
+    public void passSeatChangeNeverParsesBoard() throws DataAccessException {
+        int gameId = gameDAO.createGame("Lazy Test");
+        GameData loaded = gameDAO.getGame(gameId);
+        GameData joined = loaded.withPlayers("whiteUser", "blackUser");
+        gameDAO.updateGame(joined);
+
+        assertNotNull(loaded.storedGameJson(), "reading and joining shouldn't parse the board");
+        assertNotNull(joined.storedGameJson());
+        //the board still comes back intact, and parsing it drops the stored copy
+        GameData reloaded = gameDAO.getGame(gameId);
+        assertEquals(new ChessGame().getBoard(), reloaded.game().getBoard());
+        assertNull(reloaded.storedGameJson());
+    }
+
+    @Test
+    public void passSerializeNeverParsesBoard() throws DataAccessException {
+        int gameId = gameDAO.createGame("Lazy Json");
+        GameData loaded = gameDAO.getGame(gameId);
+
+        String json = new Gson().toJson(loaded);
+        assertNotNull(loaded.storedGameJson(), "serializing shouldn't parse the board");
+        GameData read = new Gson().fromJson(json, GameData.class);
+        assertEquals(new ChessGame().getBoard(), read.game().getBoard());
+        assertEquals("Lazy Json", read.gameName());
+    }
+
+    @Test
+    public void passArchiveFinishedGames() throws DataAccessException {
+        int finishedId = gameDAO.createGame("Finished");
+        int liveId = gameDAO.createGame("Live");
+        gameDAO.updateGame(gameDAO.getGame(finishedId).withPlayers("whiteUser", "blackUser").withGameOver(true));
+
+        //nothing has finished long enough ago yet
+        assertEquals(0, gameDAO.archiveFinishedGames(System.currentTimeMillis() - 60_000, 10));
+        assertEquals(1, gameDAO.archiveFinishedGames(System.currentTimeMillis() + 1, 10));
+
+        //gone from the live games, still there when asked for by id
+        assertEquals(List.of(liveId), gameDAO.listGames().stream().map(GameData::gameID).toList());
+        GameData archived = gameDAO.getGame(finishedId);
+        assertEquals("Finished", archived.gameName());
+        assertEquals("whiteUser", archived.whiteUsername());
+        assertTrue(archived.gameOver());
+        assertNotNull(archived.game());
+    }
+
+    @Test
+    public void failUpdateArchivedGame() throws DataAccessException {
+        int gameId = gameDAO.createGame("Finished");
+        gameDAO.updateGame(gameDAO.getGame(gameId).withGameOver(true));
+        gameDAO.archiveFinishedGames(System.currentTimeMillis() + 1, 10);
+
+        GameData archived = gameDAO.getGame(gameId);
+        //not a conflict, retrying won't help
+        assertThrows(ForbiddenException.class, () -> gameDAO.updateGame(archived.withPlayers("whiteUser", null)));
+    }
+
     @Test
     public void passClear() throws DataAccessException {
         gameDAO.createGame("Clear Test 1");
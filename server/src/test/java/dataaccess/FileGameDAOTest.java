@@ -0,0 +1,53 @@
+package dataaccess;
+
+import model.GameData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileGameDAOTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void passGamesSurviveRestart() throws DataAccessException {
+        int gameId;
+        try (FileGameDAO gameDAO = new FileGameDAO(dir)) {
+            gameId = gameDAO.createGame("Restart Test");
+            GameData game = gameDAO.getGame(gameId);
+            gameDAO.updateGame(game.withPlayers("whiteUser", null));
+        }
+
+        try (FileGameDAO gameDAO = new FileGameDAO(dir)) {
+            assertEquals("whiteUser", gameDAO.getGame(gameId).whiteUsername());
+            assertEquals(gameId + 1, gameDAO.createGame("Next"), "ids should pick up where they left off");
+        }
+    }
+
+    @Test
+    public void failUpdateGameStaleVersion() throws DataAccessException {
+        try (FileGameDAO gameDAO = new FileGameDAO(dir)) {
+            int gameId = gameDAO.createGame("Version Test");
+            GameData original = gameDAO.getGame(gameId);
+            gameDAO.updateGame(original.withPlayers("whiteUser", null));
+
+            assertThrows(ConflictException.class, () -> gameDAO.updateGame(original.withPlayers(null, "blackUser")));
+        }
+    }
+
+    @Test
+    public void passClearResetsIds() throws DataAccessException {
+        try (FileGameDAO gameDAO = new FileGameDAO(dir)) {
+            gameDAO.createGame("One");
+            gameDAO.createGame("Two");
+
+            gameDAO.clear();
+
+            assertTrue(gameDAO.listGames().isEmpty());
+            assertEquals(1, gameDAO.createGame("Again"));
+        }
+    }
+}
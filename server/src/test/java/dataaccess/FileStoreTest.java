@@ -0,0 +1,74 @@
+package dataaccess;
+
+import model.UserData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void passReopenReplaysLog() throws DataAccessException {
+        Path log = dir.resolve("users.log");
+        try (FileStore<UserData> store = new FileStore<>(log, UserData.class)) {
+            store.put("a", new UserData("a", "pw", "a@x.com"));
+            store.put("b", new UserData("b", "pw", "b@x.com"));
+            store.remove("a");
+        }
+
+        try (FileStore<UserData> store = new FileStore<>(log, UserData.class)) {
+            assertNull(store.get("a"), "removal should survive a restart");
+            assertEquals("b@x.com", store.get("b").email());
+        }
+    }
+
+    @Test
+    public void passTornLastLineDropped() throws DataAccessException, IOException {
+        Path log = dir.resolve("users.log");
+        try (FileStore<UserData> store = new FileStore<>(log, UserData.class)) {
+            store.put("a", new UserData("a", "pw", "a@x.com"));
+        }
+        //what a crash in the middle of an append leaves behind
+        Files.writeString(log, "{\"op\":\"PUT\",\"key\":\"b\",\"val", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (FileStore<UserData> store = new FileStore<>(log, UserData.class)) {
+            assertNotNull(store.get("a"));
+            assertNull(store.get("b"));
+            store.put("c", new UserData("c", "pw", "c@x.com")); //appends cleanly after the truncated tail
+        }
+        try (FileStore<UserData> store = new FileStore<>(log, UserData.class)) {
+            assertNotNull(store.get("c"));
+        }
+    }
+
+    @Test
+    public void passCompactionKeepsLiveEntries() throws DataAccessException {
+        Path log = dir.resolve("users.log");
+        try (FileStore<UserData> store = new FileStore<>(log, UserData.class)) {
+            for (int i = 0; i < 50; i++) {
+                store.put("a", new UserData("a", "pw", i + "@x.com"));
+            }
+            store.put("b", new UserData("b", "pw", "b@x.com"));
+
+            store.compact();
+
+            assertEquals(2, store.records(), "one line per live key after compaction");
+            store.put("c", new UserData("c", "pw", "c@x.com"));
+        }
+
+        try (FileStore<UserData> store = new FileStore<>(log, UserData.class)) {
+            assertEquals("49@x.com", store.get("a").email());
+            assertNotNull(store.get("b"));
+            assertNotNull(store.get("c"));
+        }
+    }
+}
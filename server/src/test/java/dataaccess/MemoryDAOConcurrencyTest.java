@@ -0,0 +1,82 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryDAOConcurrencyTest {
+    private static final int THREADS = 8;
+
+    @Test
+    public void passParallelCreatesGetUniqueIds() throws Exception {
+        MemoryGameDAO gameDAO = new MemoryGameDAO();
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+
+        runInParallel(() -> {
+            for (int i = 0; i < 500; i++) {
+                ids.add(gameDAO.createGame("game"));
+            }
+            return null;
+        });
+
+        assertEquals(THREADS * 500, ids.size(), "every create should get its own id");
+        assertEquals(THREADS * 500, gameDAO.listGames().size());
+    }
+
+    @Test
+    public void passOnlyOneRegistrationPerName() throws Exception {
+        MemoryUserDAO userDAO = new MemoryUserDAO();
+        AtomicInteger created = new AtomicInteger();
+
+        runInParallel(() -> {
+            try {
+                userDAO.createUser(new UserData("goodBoy", "asdf", "test@gmail.com"));
+                created.incrementAndGet();
+            } catch (BadRequestException e) {
+                //someone else got the name
+            }
+            return null;
+        });
+
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void passStoredBoardNotSharedWithCallers() throws DataAccessException {
+        MemoryGameDAO gameDAO = new MemoryGameDAO();
+        int gameId = gameDAO.createGame("copy");
+
+        GameData read = gameDAO.getGame(gameId);
+        read.game().setTeamTurn(ChessGame.TeamColor.BLACK);
+
+        assertEquals(ChessGame.TeamColor.WHITE, gameDAO.getGame(gameId).game().getTeamTurn());
+    }
+
+    private void runInParallel(Callable<Void> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(pool.submit(task));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
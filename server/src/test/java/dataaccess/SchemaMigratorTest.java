@@ -0,0 +1,47 @@
+package dataaccess;
+
+import model.UserData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaMigratorTest {
+    private DBUserDAO userDAO;
+
+    @BeforeEach
+    public void setUp() throws DataAccessException {
+        DatabaseManager.createTables();
+        userDAO = new DBUserDAO();
+        userDAO.clear();
+    }
+
+    @Test
+    public void passRestartKeepsData() throws DataAccessException {
+        userDAO.createUser(new UserData("goodBoy", "asdf", "test@gmail.com"));
+
+        DatabaseManager.createTables(); //what every server start does
+
+        assertNotNull(userDAO.getUser("goodBoy"), "migrating again should not drop the user");
+    }
+
+    @Test
+    public void passNothingToApplyWhenCurrent() throws DataAccessException, SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            assertEquals(0, new SchemaMigrator().migrate(conn), "schema is already current");
+        }
+    }
+
+    @Test
+    public void failEditedMigrationDetected() throws SQLException, DataAccessException {
+        SchemaMigrator edited = new SchemaMigrator(List.of(new Migration(1, "initial tables", "SELECT 1")));
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            assertThrows(DataAccessException.class, () -> edited.migrate(conn));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package server;
+
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.Test;
+import websocket.commands.CommandAdapterFactory;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.ObserveGameCommand;
+import websocket.commands.UserGameCommand;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandAdapterFactoryTest {
+    private final Gson plain = new Gson();
+    private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new CommandAdapterFactory()).create();
+
+    @Test
+    public void passMoveReadIntoMakeMoveCommand() {
+        ChessMove move = new ChessMove(new ChessPosition(7, 2), new ChessPosition(8, 2), ChessPiece.PieceType.QUEEN);
+        String json = plain.toJson(new MakeMoveCommand("token", 12, move));
+
+        UserGameCommand command = gson.fromJson(json, UserGameCommand.class);
+
+        MakeMoveCommand makeMove = assertInstanceOf(MakeMoveCommand.class, command);
+        assertEquals(move, makeMove.getMove());
+        assertEquals("token", makeMove.getAuthToken());
+        assertEquals(12, makeMove.getGameID());
+    }
+
+    @Test
+    public void passFieldOrderAndExtraFieldsDontMatter() {
+        String json = "{\"gameID\":3,\"extra\":{\"a\":[1,2]},\"authToken\":\"t\",\"commandType\":\"OBSERVE\"}";
+
+        UserGameCommand command = gson.fromJson(json, UserGameCommand.class);
+
+        assertInstanceOf(ObserveGameCommand.class, command);
+        assertEquals(new UserGameCommand(UserGameCommand.CommandType.OBSERVE, "t", 3), command);
+        assertEquals(plain.toJson(command), gson.toJson(command), "writing is unchanged");
+    }
+
+    @Test
+    public void failMissingOrUnknownCommandType() {
+        assertThrows(JsonParseException.class, () -> gson.fromJson("{\"authToken\":\"t\",\"gameID\":1}", UserGameCommand.class));
+        assertThrows(JsonParseException.class, () -> gson.fromJson("{\"commandType\":\"CASTLE\",\"gameID\":1}", UserGameCommand.class));
+    }
+}
@@ -0,0 +1,109 @@
+package server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameActorsTest {
+    private GameActors actors;
+
+    @BeforeEach
+    public void setUp() {
+        actors = new GameActors();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        actors.shutdown();
+    }
+
+    @Test
+    public void passSameGameRunsInOrderOneAtATime() throws InterruptedException {
+        int tasks = 500;
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(tasks);
+
+        for (int i = 0; i < tasks; i++) {
+            int n = i;
+            actors.submit(1, () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                order.add(n);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get(), "two tasks for one game ran at the same time");
+        for (int i = 0; i < tasks; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    public void passDifferentGamesRunInParallel() throws InterruptedException {
+        //game 1 waits on something only game 2 can do. serial across games would never finish
+        CountDownLatch gameTwoRan = new CountDownLatch(1);
+        CountDownLatch gameOneDone = new CountDownLatch(1);
+        actors.submit(1, () -> {
+            try {
+                if (gameTwoRan.await(5, TimeUnit.SECONDS)) {
+                    gameOneDone.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        actors.submit(2, gameTwoRan::countDown);
+
+        assertTrue(gameOneDone.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void passFailedTaskDoesNotStallGame() throws InterruptedException {
+        CountDownLatch after = new CountDownLatch(1);
+        actors.submit(1, () -> {
+            throw new IllegalStateException("bad command");
+        });
+        actors.submit(1, after::countDown);
+
+        assertTrue(after.await(5, TimeUnit.SECONDS));
+        //idle mailboxes are dropped
+        long deadline = System.currentTimeMillis() + 5000;
+        while (actors.activeGames() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, actors.activeGames());
+    }
+
+    @Test
+    public void passShutdownWaitsForQueuedWork() {
+        AtomicInteger ran = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            actors.submit(1, () -> {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ran.incrementAndGet();
+            });
+        }
+
+        actors.shutdown();
+        assertEquals(20, ran.get(), "shutdown returned with commands still queued");
+    }
+}
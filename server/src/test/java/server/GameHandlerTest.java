@@ -0,0 +1,65 @@
+package server;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameHandlerTest {
+    private static final Gson GSON = new Gson();
+    private static Server server;
+    private static int port;
+    private static String token;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        server = new Server();
+        port = server.run(0);
+        http("DELETE", "/db", null, null);
+        HttpResponse<String> registered = http("POST", "/user",
+                Map.of("username", "handler", "password", "pw", "email", "h@x.com"), null);
+        token = GSON.fromJson(registered.body(), Map.class).get("authToken").toString();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void passGetGame() throws Exception {
+        HttpResponse<String> created = http("POST", "/game", Map.of("gameName", "lookup"), token);
+        int gameID = ((Number) GSON.fromJson(created.body(), Map.class).get("gameID")).intValue();
+
+        HttpResponse<String> response = http("GET", "/game/" + gameID, null, token);
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(response.body().contains("lookup"));
+    }
+
+    @Test
+    public void failGetUnknownGame() throws Exception {
+        HttpResponse<String> response = http("GET", "/game/987654", null, token);
+        assertEquals(404, response.statusCode(), response.body());
+        assertTrue(response.body().contains("Error:"));
+
+        assertEquals(400, http("GET", "/game/notanumber", null, token).statusCode());
+    }
+
+    private static HttpResponse<String> http(String method, String path, Object body, String authToken) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(GSON.toJson(body)));
+        if (authToken != null) {
+            request.header("Authorization", authToken);
+        }
+        return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
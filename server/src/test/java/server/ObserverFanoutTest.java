@@ -0,0 +1,142 @@
+package server;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveDeltaMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage.ServerMessageType;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObserverFanoutTest {
+    private static final int GAME = 7;
+    private final Gson gson = new Gson();
+    private final Map<Session, List<ServerMessageType>> received = new ConcurrentHashMap<>();
+    private final Session plain = session();
+    private final Session deltas = session(); //gets MOVE_DELTA when there's only one move
+    private ObserverFanout fanout;
+
+    @BeforeEach
+    public void setUp() {
+        fanout = new ObserverFanout((session, message) ->
+                received.computeIfAbsent(session, s -> new CopyOnWriteArrayList<>()).add(message.type()),
+                gameID -> gameID == GAME ? Set.of(plain, deltas) : Set.of(), 2, 0);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        fanout.shutdown();
+    }
+
+    @Test
+    public void passNothingSentBeforeTheTick() {
+        fanout.moved(GAME, this::forSession, this::board);
+        fanout.notify(GAME, note("moved"));
+
+        assertTrue(received.isEmpty(), "moves only get recorded until the tick");
+    }
+
+    @Test
+    public void passSingleMoveSentPerSession() throws Exception {
+        fanout.moved(GAME, this::forSession, this::board);
+        fanout.notify(GAME, note("moved"));
+        deliver();
+
+        assertEquals(List.of(ServerMessageType.LOAD_GAME, ServerMessageType.NOTIFICATION), received.get(plain));
+        assertEquals(List.of(ServerMessageType.MOVE_DELTA, ServerMessageType.NOTIFICATION), received.get(deltas));
+    }
+
+    @Test
+    public void passSeveralMovesFoldedIntoOneBoard() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            fanout.moved(GAME, this::forSession, this::board);
+            fanout.notify(GAME, note("move " + i));
+        }
+        deliver();
+
+        List<ServerMessageType> expected = List.of(ServerMessageType.LOAD_GAME, ServerMessageType.NOTIFICATION,
+                ServerMessageType.NOTIFICATION, ServerMessageType.NOTIFICATION);
+        assertEquals(expected, received.get(plain));
+        assertEquals(expected, received.get(deltas), "a delta can't skip moves, so everyone gets the board");
+
+        deliver();
+        assertEquals(4, received.get(plain).size(), "nothing new, nothing sent");
+    }
+
+    @Test
+    public void passBatchingSticksUntilDrained() {
+        Set<Session> watching = ConcurrentHashMap.newKeySet();
+        fanout.shutdown();
+        fanout = new ObserverFanout((session, message) ->
+                received.computeIfAbsent(session, s -> new CopyOnWriteArrayList<>()).add(message.type()),
+                gameID -> watching, 4, 0);
+
+        watching.addAll(List.of(plain, deltas, session()));
+        assertFalse(fanout.batching(GAME), "below the threshold");
+        watching.add(session());
+        assertTrue(fanout.batching(GAME));
+
+        fanout.moved(GAME, this::forSession, this::board);
+        fanout.notify(GAME, note("moved"));
+        watching.removeIf(s -> s != plain && s != deltas);
+        assertTrue(fanout.batching(GAME), "half the threshold still batches");
+        assertTrue(received.isEmpty());
+
+        watching.remove(deltas);
+        assertFalse(fanout.batching(GAME));
+        assertEquals(List.of(ServerMessageType.LOAD_GAME, ServerMessageType.NOTIFICATION), received.get(plain),
+                "what was waiting goes out before the game switches to direct sends");
+
+        watching.addAll(List.of(deltas, session()));
+        assertFalse(fanout.batching(GAME), "has to reach the threshold again");
+        watching.add(session());
+        assertTrue(fanout.batching(GAME));
+    }
+
+    private void deliver() throws InterruptedException {
+        fanout.flush();
+        for (int i = 0; i < 500 && fanout.delivering() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, fanout.delivering());
+    }
+
+    private OutboundMessage forSession(Session session) {
+        if (session != deltas) {
+            return board();
+        }
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        return OutboundMessage.of(gson, new MoveDeltaMessage(move, 1, MoveDeltaMessage.GameStatus.IN_PROGRESS, 0));
+    }
+
+    private OutboundMessage board() {
+        return OutboundMessage.of(gson, new LoadGameMessage(new ChessGame(), null));
+    }
+
+    private OutboundMessage note(String text) {
+        return OutboundMessage.of(gson, new NotificationMessage(text));
+    }
+
+    private static Session session() {
+        return (Session) Proxy.newProxyInstance(ObserverFanoutTest.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+}
@@ -0,0 +1,119 @@
+package server;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveDeltaMessage;
+import websocket.messages.NotificationMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionOutboxTest {
+    private final Gson gson = new Gson();
+    //a client that never finishes a write until the test says so
+    private final List<String> written = new ArrayList<>();
+    private final List<WriteCallback> pending = new ArrayList<>();
+    private boolean closed;
+    private Session session;
+
+    @BeforeEach
+    public void setUp() {
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendString") && args.length == 2) {
+                        written.add((String) args[0]);
+                        pending.add((WriteCallback) args[1]);
+                    }
+                    return null;
+                });
+        session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getRemote" -> remote;
+                    case "isOpen" -> !closed;
+                    case "close" -> {
+                        closed = true;
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    @Test
+    public void passOneWriteAtATimeInOrder() {
+        SessionOutbox outbox = new SessionOutbox(session);
+        outbox.send(note("one"));
+        outbox.send(note("two"));
+
+        assertEquals(1, written.size(), "second message has to wait for the first write");
+        pending.get(0).writeSuccess();
+        assertEquals(2, written.size());
+        assertTrue(written.get(1).contains("two"));
+    }
+
+    @Test
+    public void passUnsentBoardReplacedByNewerOne() {
+        SessionOutbox outbox = new SessionOutbox(session);
+        outbox.send(note("in flight"));
+        outbox.send(board());
+        outbox.send(note("moved"));
+        outbox.send(board());
+
+        assertEquals(2, outbox.queued(), "the first board should have been dropped");
+        pending.get(0).writeSuccess();
+        pending.get(1).writeSuccess();
+        assertTrue(written.get(1).contains("moved"));
+        assertTrue(written.get(2).contains("LOAD_GAME"));
+    }
+
+    @Test
+    public void passUnsentDeltasReplacedByBoard() {
+        SessionOutbox outbox = new SessionOutbox(session);
+        outbox.send(note("in flight"));
+        outbox.send(delta());
+        outbox.send(delta());
+        outbox.send(board());
+
+        assertEquals(1, outbox.queued(), "the board covers both deltas");
+        pending.get(0).writeSuccess();
+        assertTrue(written.get(1).contains("LOAD_GAME"));
+    }
+
+    @Test
+    public void failClientTooFarBehindIsDisconnected() {
+        SessionOutbox outbox = new SessionOutbox(session, 3);
+        for (int i = 0; i < 5; i++) {
+            outbox.send(note("message " + i));
+        }
+
+        assertTrue(closed);
+        assertEquals(0, outbox.queued());
+        outbox.send(note("after"));
+        assertEquals(1, written.size(), "nothing more goes out once disconnected");
+    }
+
+    private OutboundMessage note(String text) {
+        return OutboundMessage.of(gson, new NotificationMessage(text));
+    }
+
+    private OutboundMessage delta() {
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        return OutboundMessage.of(gson, new MoveDeltaMessage(move, 1, MoveDeltaMessage.GameStatus.IN_PROGRESS, 0));
+    }
+
+    private OutboundMessage board() {
+        return OutboundMessage.of(gson, new LoadGameMessage(new ChessGame(), null));
+    }
+}
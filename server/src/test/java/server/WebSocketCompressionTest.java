@@ -0,0 +1,110 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
+import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebSocketCompressionTest {
+    private static final Gson GSON = new Gson();
+    private static Server server;
+    private static int port;
+    private static WebSocketClient client;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        server = new Server();
+        port = server.run(0);
+        client = new WebSocketClient();
+        client.start();
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        client.stop();
+        server.stop();
+    }
+
+    @WebSocket
+    public static class Recorder {
+        final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+
+        @OnWebSocketMessage
+        public void onMessage(String message) {
+            messages.add(message);
+        }
+    }
+
+    @Test
+    public void passBoardsCompressedSmallMessagesNot() throws Exception {
+        http("DELETE", "/db", null, null);
+        String token = http("POST", "/user", Map.of("username", "deflate", "password", "pw", "email", "d@x.com"), null)
+                .get("authToken").getAsString();
+        int gameID = http("POST", "/game", Map.of("gameName", "squeeze"), token).get("gameID").getAsInt();
+
+        Recorder recorder = new Recorder();
+        ClientUpgradeRequest upgrade = new ClientUpgradeRequest();
+        upgrade.addExtensions("permessage-deflate");
+        Session session = client.connect(recorder, URI.create("ws://localhost:" + port + "/ws"), upgrade)
+                .get(5, TimeUnit.SECONDS);
+        try {
+            assertTrue(session.getUpgradeResponse().getExtensions().stream()
+                    .anyMatch(ext -> ext.getName().equals("permessage-deflate")), "server should accept deflate");
+
+            session.getRemote().sendString(GSON.toJson(Map.of("commandType", "CONNECT", "authToken", token, "gameID", gameID)));
+            String board = recorder.messages.poll(5, TimeUnit.SECONDS);
+            assertNotNull(board);
+            assertTrue(board.contains("LOAD_GAME"));
+
+            session.getRemote().sendString("{\"commandType\":\"RESYNC\",\"authToken\":\"x\",\"gameID\":" + (gameID + 1) + "}");
+            String error = recorder.messages.poll(5, TimeUnit.SECONDS);
+            assertNotNull(error);
+            assertTrue(error.contains("ERROR"));
+        } finally {
+            session.close();
+        }
+
+        //this server's own counters, so other servers in the same JVM don't show up here
+        JsonObject stats = http("GET", "/stats/ws", null, null);
+        JsonObject compression = stats.getAsJsonObject("compression");
+        assertEquals(1, compression.get("compressedMessages").getAsLong());
+        assertEquals(1, compression.get("skippedMessages").getAsLong());
+        long in = compression.get("bytesBeforeCompression").getAsLong();
+        long out = compression.get("bytesAfterCompression").getAsLong();
+        assertTrue(out > 0 && out < in / 2, "board went from " + in + " to " + out + " bytes");
+
+        JsonObject loadGame = stats.getAsJsonObject("out").getAsJsonObject("LOAD_GAME");
+        assertEquals(1, loadGame.get("messages").getAsLong());
+        assertEquals(in, loadGame.get("bytes").getAsLong(), "payload bytes are counted before compression");
+        assertEquals(1, stats.getAsJsonObject("in").getAsJsonObject("CONNECT").get("messages").getAsLong());
+    }
+
+    private static JsonObject http(String method, String path, Object body, String authToken) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(GSON.toJson(body)));
+        if (authToken != null) {
+            request.header("Authorization", authToken);
+        }
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return GSON.fromJson(response.body(), JsonObject.class);
+    }
+}
@@ -4,10 +4,17 @@ import dataaccess.*;
 import model.UserData;
 import model.GameData;
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import request.CreateGameRequest;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class GameServiceTest {
@@ -36,10 +43,18 @@ public class GameServiceTest {
         assertEquals(gameID, result.gameID());//game should match ID
     }
 
+    @Test
+    public void createGameNameTooLong() throws DataAccessException {
+        String authToken = authDAO.makeAuth("testuser");
+        CreateGameRequest longName = new CreateGameRequest("g".repeat(GameService.MAX_GAME_NAME_LENGTH + 1));
+        assertThrows(BadRequestException.class, () -> gameService.createGame(longName, authToken));
+        assertTrue(gameDAO.listGames().isEmpty());
+    }
+
     @Test
     public void getInvalidGameID() {
         // Throw except fetching id that doesn't exist.
-        assertThrows(DataAccessException.class, () ->
+        assertThrows(NotFoundException.class, () ->
                 gameService.getGame(999));
     }
 
@@ -131,6 +146,22 @@ public class GameServiceTest {
         assertEquals(2, games.size());
     }
 
+    @Test
+    public void listGamesCursorWalksAllPages() throws DataAccessException {
+        String authToken = authDAO.makeAuth("testuser");
+        for (int i = 0; i < 3; i++) {
+            gameService.createGame(req, authToken);
+        }
+
+        var first = gameService.listGames(authToken, new GameQuery(0, 2, false, null, null));
+        var second = gameService.listGames(authToken, new GameQuery(first.nextCursor(), 2, false, null, null));
+
+        assertEquals(2, first.games().size());
+        assertNotNull(first.nextCursor());
+        assertEquals(1, second.games().size());
+        assertNull(second.nextCursor(), "last page has no cursor");
+    }
+
     @Test
     public void joinGameWithValidRequest() throws DataAccessException {
         //join game as white player
@@ -157,4 +188,206 @@ public class GameServiceTest {
         assertThrows(DataAccessException.class, () -> gameService.joinGame(authToken2, gameID, "WHITE"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void joinRetriedAfterOutsideChange() throws DataAccessException {
+        String authToken1 = authDAO.makeAuth("user1");
+        String authToken2 = authDAO.makeAuth("user2");
+        int gameID = gameService.createGame(req, authToken1);
+        gameService.joinGame(authToken1, gameID, "WHITE"); //game is cached now
+
+        //another server takes black behind this service's back
+        GameData stored = gameDAO.getGame(gameID);
+        gameDAO.updateGame(stored.withPlayers(stored.whiteUsername(), "other"));
+
+        //cached copy says black is free, the retry against the real row says otherwise
+        var e = assertThrows(DataAccessException.class, () -> gameService.joinGame(authToken2, gameID, "BLACK"));
+        assertEquals("Error: already taken", e.getMessage());
+        assertEquals("other", gameDAO.getGame(gameID).blackUsername());
+    }
+
+    @Test
+    public void moveWrittenBehind() throws Exception {
+        //long interval so only an explicit flush can write
+        gameService = new GameService(gameDAO, authDAO, 60_000);
+        String authToken = authDAO.makeAuth("testuser");
+        int gameID = gameService.createGame(req, authToken);
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+
+        gameService.makeMove(authToken, gameID, move);
+
+        //service sees the move right away, dao doesn't yet
+        assertEquals(ChessGame.TeamColor.BLACK, gameService.getGame(gameID).game().getTeamTurn());
+        assertEquals(ChessGame.TeamColor.WHITE, gameDAO.getGame(gameID).game().getTeamTurn());
+
+        gameService.shutdown();
+        assertEquals(ChessGame.TeamColor.BLACK, gameDAO.getGame(gameID).game().getTeamTurn());
+    }
+
+    @Test
+    public void gameOverWrittenThrough() throws Exception {
+        gameService = new GameService(gameDAO, authDAO, 60_000);
+        String authToken = authDAO.makeAuth("testuser");
+        int gameID = gameService.createGame(req, authToken);
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        GameData moved = gameService.makeMove(authToken, gameID, move);
+
+        gameService.updateGame(new GameData(gameID, moved.whiteUsername(), moved.blackUsername(),
+                moved.gameName(), moved.game(), true));
+
+        //ending the game flushes the pending move with it
+        GameData stored = gameDAO.getGame(gameID);
+        assertTrue(stored.gameOver());
+        assertEquals(ChessGame.TeamColor.BLACK, stored.game().getTeamTurn());
+    }
+
+    @Test
+    public void replayRebuildsEarlierPositions() throws Exception {
+        String authToken = authDAO.makeAuth("testuser");
+        int gameID = gameService.createGame(req, authToken);
+        //knights out and back, 20 plies so the replay has to start from a checkpoint past the first
+        ChessMove[] shuffle = {
+                new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null),
+                new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null),
+                new ChessMove(new ChessPosition(3, 3), new ChessPosition(1, 2), null),
+                new ChessMove(new ChessPosition(6, 3), new ChessPosition(8, 2), null)};
+        for (int ply = 0; ply < 20; ply++) {
+            gameService.makeMove(authToken, gameID, shuffle[ply % 4]);
+        }
+
+        ChessGame current = gameService.getGame(gameID).game();
+        assertEquals(20, current.getMoveCount());
+        assertEquals(shuffle[1], current.getMoveHistory().get(17));
+
+        //17 plies in: white knight out, black knight home, black to move
+        ChessGame replayed = gameService.replayGame(authToken, gameID, 17);
+        assertNotNull(replayed.getBoard().getPiece(new ChessPosition(3, 3)));
+        assertNull(replayed.getBoard().getPiece(new ChessPosition(6, 3)));
+        assertEquals(ChessGame.TeamColor.BLACK, replayed.getTeamTurn());
+        assertEquals(17, replayed.getMoveCount());
+
+        //history survives the json the DAOs store
+        String json = new Gson().toJson(current);
+        assertEquals(20, new Gson().fromJson(json, JsonObject.class)
+                .getAsJsonObject("history").getAsJsonArray("moves").size(), "no spare room in the save");
+        ChessGame stored = new Gson().fromJson(json, ChessGame.class);
+        assertEquals(new ChessGame().getBoard(), stored.positionAt(0).getBoard());
+        assertEquals(replayed.getBoard(), stored.positionAt(17).getBoard());
+    }
+
+    @Test
+    public void replayPastLastMoveRejected() throws Exception {
+        String authToken = authDAO.makeAuth("testuser");
+        int gameID = gameService.createGame(req, authToken);
+        gameService.makeMove(authToken, gameID, new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        var e = assertThrows(DataAccessException.class, () -> gameService.replayGame(authToken, gameID, 2));
+        assertEquals("Error: bad request", e.getMessage());
+        assertThrows(DataAccessException.class, () -> gameService.replayGame(authToken, gameID, -1));
+    }
+
+    @Test
+    public void moveAsSeatedPlayerAndSeatListener() throws Exception {
+        String white = authDAO.makeAuth("white");
+        String black = authDAO.makeAuth("black");
+        int gameID = gameService.createGame(req, white);
+        List<Integer> changed = new ArrayList<>();
+        gameService.addSeatListener(changed::add);
+        gameService.joinGame(white, gameID, "WHITE");
+        gameService.joinGame(black, gameID, "BLACK");
+        assertEquals(List.of(gameID, gameID), changed);
+
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        var e = assertThrows(DataAccessException.class, () -> gameService.makeMoveAs("black", gameID, e4));
+        assertEquals("You can't move for your opponent!", e.getMessage());
+
+        GameData moved = gameService.makeMoveAs("white", gameID, e4);
+        assertEquals(1, moved.game().getMoveCount());
+    }
+
+    @Test
+    public void moveAfterLeavingSeatRejected() throws Exception {
+        String white = authDAO.makeAuth("white");
+        int gameID = gameService.createGame(req, white);
+        gameService.joinGame(white, gameID, "WHITE");
+        gameService.leaveGame("white", gameID);
+
+        ChessMove e4 = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        assertThrows(SeatChangedException.class, () -> gameService.makeMoveAs("white", gameID, e4));
+        assertEquals(0, gameService.getGame(gameID).game().getMoveCount());
+    }
+
+    @Test
+    public void unflushedMovesReplayedAfterConflictingWrite() throws Exception {
+        gameService = new GameService(gameDAO, authDAO, 60_000); //nothing flushes behind the test's back
+        String white = authDAO.makeAuth("white");
+        String black = authDAO.makeAuth("black");
+        int gameID = gameService.createGame(req, white);
+        gameService.joinGame(white, gameID, "WHITE");
+        gameService.makeMove(white, gameID, new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        //another server renames the game, so our cached version is behind
+        GameData row = gameDAO.getGame(gameID);
+        gameDAO.updateGame(new GameData(gameID, row.whiteUsername(), row.blackUsername(), "renamed", row.game(), false)
+                .withVersion(row.version()));
+
+        gameService.joinGame(black, gameID, "BLACK"); //written through, hits the conflict
+        GameData stored = gameDAO.getGame(gameID);
+        assertEquals("renamed", stored.gameName());
+        assertEquals("black", stored.blackUsername());
+        assertEquals(1, stored.game().getMoveCount());
+    }
+
+    @Test
+    public void matingMoveKeptAfterConflictingWrite() throws Exception {
+        gameService = new GameService(gameDAO, authDAO, 60_000);
+        String white = authDAO.makeAuth("white");
+        String black = authDAO.makeAuth("black");
+        int gameID = gameService.createGame(req, white);
+        gameService.joinGame(white, gameID, "WHITE");
+        gameService.joinGame(black, gameID, "BLACK");
+        gameService.makeMove(white, gameID, new ChessMove(new ChessPosition(2, 6), new ChessPosition(3, 6), null));
+        gameService.makeMove(black, gameID, new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        gameService.makeMove(white, gameID, new ChessMove(new ChessPosition(2, 7), new ChessPosition(4, 7), null));
+
+        GameData row = gameDAO.getGame(gameID);
+        gameDAO.updateGame(new GameData(gameID, row.whiteUsername(), row.blackUsername(), "renamed", row.game(), false)
+                .withVersion(row.version()));
+
+        //fool's mate, written through and conflicting with the rename
+        GameData mated = gameService.makeMove(black, gameID,
+                new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+        assertTrue(mated.gameOver());
+        assertEquals(4, mated.game().getMoveCount());
+
+        GameData stored = gameDAO.getGame(gameID);
+        assertTrue(stored.gameOver());
+        assertEquals("renamed", stored.gameName());
+        assertEquals(4, stored.game().getMoveCount());
+        //evicted, so a change to the row shows up right away
+        gameDAO.updateGame(stored.withPlayers("white", null));
+        assertNull(gameService.getGame(gameID).blackUsername());
+    }
+
+    @Test
+    public void movesThatNoLongerFitAreReported() throws Exception {
+        gameService = new GameService(gameDAO, authDAO, 60_000);
+        String white = authDAO.makeAuth("white");
+        int gameID = gameService.createGame(req, white);
+        List<Integer> lost = new ArrayList<>();
+        gameService.addLostMovesListener(lost::add);
+        gameService.joinGame(white, gameID, "WHITE");
+        gameService.makeMove(white, gameID, new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        //another server played a different first move
+        GameData row = gameDAO.getGame(gameID);
+        ChessGame theirs = new ChessGame(row.game());
+        theirs.makeMove(new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null));
+        gameDAO.updateGame(row.withGame(theirs, false));
+
+        gameService.shutdown(); //final flush
+        assertEquals(List.of(gameID), lost);
+        GameData current = gameService.getGame(gameID);
+        assertEquals(1, current.game().getMoveCount());
+        assertNotNull(current.game().getBoard().getPiece(new ChessPosition(4, 4)));
+    }
+}
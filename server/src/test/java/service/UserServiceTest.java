@@ -8,6 +8,9 @@ import org.junit.jupiter.api.Test;
 import request.LoginRequest;
 import request.RegisterRequest;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class UserServiceTest {
@@ -25,6 +28,12 @@ public class UserServiceTest {
         userService = new UserService(userDAO, authDAO);
     }
 
+    @Test
+    public void makeUserNameTooLong() {
+        RegisterRequest longName = new RegisterRequest("u".repeat(UserService.MAX_USERNAME_LENGTH + 1), "pw", "a@b.com");
+        assertThrows(BadRequestException.class, () -> userService.makeUser(longName));
+    }
+
     @Test
     public void verifyUserValidCredentials() throws DataAccessException {
         // I want to add a user
@@ -112,4 +121,15 @@ public class UserServiceTest {
         LoginRequest loginReq = new LoginRequest(req.username(), req.password());
         assertThrows(DataAccessException.class, () -> userService.loginUser(loginReq));
     }
+
+    @Test
+    public void logoutTellsListeners() throws DataAccessException {
+        AuthData auth = userService.makeUser(req);
+        List<String> loggedOut = new ArrayList<>();
+        userService.addLogoutListener(loggedOut::add);
+
+        userService.logoutUser(auth.authToken());
+
+        assertEquals(List.of(auth.authToken()), loggedOut);
+    }
 }
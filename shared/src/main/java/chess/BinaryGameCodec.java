@@ -0,0 +1,96 @@
+package chess;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes moves and games in a compact binary form, for the binary WebSocket protocol.
+ * <p>
+ * A move is the same packed value MoveHistory keeps, written as a short. A game with a history is
+ * its starting position plus the packed moves, and the current board is rebuilt from those when it's
+ * read, so the game that comes out still knows its moves. A game set up with no moves since is just
+ * the board and whose turn it is. Boards are MoveHistory's 64 character form, one byte per square.
+ */
+public final class BinaryGameCodec {
+    private static final int NO_HISTORY = -1;
+
+    private BinaryGameCodec() {
+    }
+
+    public static void writeMove(DataOutput out, ChessMove move) throws IOException {
+        out.writeShort(MoveHistory.pack(move));
+    }
+
+    public static ChessMove readMove(DataInput in) throws IOException {
+        return MoveHistory.unpack(readPackedMove(in));
+    }
+
+    public static void writeGame(DataOutput out, ChessGame game) throws IOException {
+        MoveHistory history = game.history();
+        if (history == null) {
+            out.writeInt(NO_HISTORY);
+            writeTurn(out, game.getTeamTurn());
+            writeBoard(out, MoveHistory.encodeBoard(game.getBoard()));
+            return;
+        }
+        out.writeInt(history.size());
+        writeTurn(out, history.startTurn());
+        writeBoard(out, history.startBoard());
+        for (int ply = 0; ply < history.size(); ply++) {
+            out.writeShort(history.packedMove(ply));
+        }
+    }
+
+    public static ChessGame readGame(DataInput in) throws IOException {
+        int plies = in.readInt();
+        ChessGame.TeamColor turn = readTurn(in);
+        ChessBoard board = readBoard(in);
+        if (plies == NO_HISTORY) {
+            return new ChessGame(board, turn, null);
+        }
+        if (plies < 0) {
+            throw new IOException("bad move count " + plies);
+        }
+        int[] moves = new int[plies];
+        for (int ply = 0; ply < plies; ply++) {
+            moves[ply] = readPackedMove(in);
+        }
+        return MoveHistory.rebuild(board, turn, moves);
+    }
+
+    private static int readPackedMove(DataInput in) throws IOException {
+        int packed = in.readUnsignedShort();
+        if (packed >>> 12 > ChessPiece.PieceType.values().length) {
+            throw new IOException("bad move " + packed);
+        }
+        return packed;
+    }
+
+    private static void writeTurn(DataOutput out, ChessGame.TeamColor turn) throws IOException {
+        out.writeByte(turn.ordinal());
+    }
+
+    private static ChessGame.TeamColor readTurn(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= ChessGame.TeamColor.values().length) {
+            throw new IOException("bad team " + ordinal);
+        }
+        return ChessGame.TeamColor.values()[ordinal];
+    }
+
+    private static void writeBoard(DataOutput out, String encoded) throws IOException {
+        out.write(encoded.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static ChessBoard readBoard(DataInput in) throws IOException {
+        byte[] squares = new byte[64];
+        in.readFully(squares);
+        try {
+            return MoveHistory.decodeBoard(new String(squares, StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package chess;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.zip.CRC32;
 
 /**
  * For a class that can manage a chess game, making moves on a board
@@ -14,6 +16,8 @@ public class ChessGame {
 
     private ChessBoard board;
     private ChessGame.TeamColor correctColorsTurn;
+    //moves since the position the history starts from. null until the first move after a new game or setBoard
+    private MoveHistory history;
 
     public ChessGame() {
         this.board = new ChessBoard();
@@ -21,6 +25,29 @@ public class ChessGame {
         this.correctColorsTurn = ChessGame.TeamColor.WHITE;
     }
 
+    /**
+     * Copies another game so it can be changed without touching the original
+     *
+     * @param other the game to copy
+     */
+    public ChessGame(ChessGame other) {
+        this.board = other.copyOfCurrentBoard();
+        this.correctColorsTurn = other.correctColorsTurn;
+        this.history = other.history == null ? null : new MoveHistory(other.history);
+    }
+
+    //for MoveHistory.replay
+    ChessGame(ChessBoard board, TeamColor turn, MoveHistory history) {
+        this.board = board;
+        this.correctColorsTurn = turn;
+        this.history = history;
+    }
+
+    //null if no moves have been made since the position was set up
+    MoveHistory history() {
+        return history;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -35,6 +62,7 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         this.correctColorsTurn = team;
+        this.history = null; //a set up position, the history starts over from here
     }
 
     /**
@@ -108,6 +136,9 @@ public class ChessGame {
         if (validMoves == null || !validMoves.contains(move)) {
             throw new InvalidMoveException();
         }
+        if (history == null) {
+            history = new MoveHistory(board, correctColorsTurn);
+        }
 
         board.addPiece(move.getEndPosition(), piece);
         board.addPiece(move.getStartPosition(), null);
@@ -116,6 +147,51 @@ public class ChessGame {
             board.addPiece(move.getEndPosition(), new ChessPiece(correctColorsTurn, move.getPromotionPiece()));
         }
         correctColorsTurn = (correctColorsTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE; //Other players turn
+        history.record(move, board);
+    }
+
+    /**
+     * @return how many moves have been made since the starting position
+     */
+    public int getMoveCount() {
+        return history == null ? 0 : history.size();
+    }
+
+    /**
+     * @return the moves made since the starting position, oldest first
+     */
+    public List<ChessMove> getMoveHistory() {
+        return history == null ? List.of() : history.getMoves();
+    }
+
+    /**
+     * Checksum of the pieces on the board and whose turn it is. Two games in the same position
+     * have the same checksum, so a client that applied a move itself can check it against the server's.
+     *
+     * @return CRC32 of the position
+     */
+    public long positionChecksum() {
+        CRC32 crc = new CRC32();
+        crc.update(MoveHistory.encodeBoard(board).getBytes(StandardCharsets.US_ASCII));
+        crc.update(correctColorsTurn == TeamColor.WHITE ? 'w' : 'b');
+        return crc.getValue();
+    }
+
+    /**
+     * Rebuilds an earlier position of this game
+     *
+     * @param ply number of moves in, 0 for the starting position
+     * @return a new game as it was after that many moves
+     * @throws IllegalArgumentException if ply is negative or past the last move
+     */
+    public ChessGame positionAt(int ply) {
+        if (history == null) {
+            if (ply != 0) {
+                throw new IllegalArgumentException("ply " + ply + " is outside 0..0");
+            }
+            return new ChessGame(this);
+        }
+        return history.replay(ply);
     }
     /**
      * Determines if the given team is in check
@@ -225,6 +301,7 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        this.history = null;
     }
     /**
      * Gets the current chessboard
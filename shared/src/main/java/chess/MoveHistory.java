@@ -0,0 +1,300 @@
+package chess;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The moves of a game, kept small enough to store with every save.
+ * <p>
+ * Each move is packed into one int (from square, to square, promotion piece). Every
+ * CHECKPOINT_INTERVAL plies a copy of the board is kept as a 64 character string, so any
+ * earlier position is rebuilt from the nearest checkpoint by replaying at most
+ * CHECKPOINT_INTERVAL - 1 moves. Checkpoint 0 is the position the history started from,
+ * which is the normal starting board unless the game was set up some other way.
+ */
+public class MoveHistory {
+    public static final int CHECKPOINT_INTERVAL = 16;
+
+    //bits 0-5 from square, 6-11 to square, 12-14 promotion (0 for none, else PieceType ordinal + 1)
+    private static final int SQUARE_BITS = 6;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    private static final char EMPTY = '.';
+
+    private final ChessGame.TeamColor startTurn;
+    private PackedMoves moves;
+    private final List<Checkpoint> checkpoints;
+
+    public MoveHistory(ChessBoard start, ChessGame.TeamColor startTurn) {
+        this.startTurn = startTurn;
+        this.moves = new PackedMoves(new int[0]);
+        this.checkpoints = new ArrayList<>();
+        this.checkpoints.add(new Checkpoint(0, encodeBoard(start)));
+    }
+
+    public MoveHistory(MoveHistory other) {
+        this.startTurn = other.startTurn;
+        this.moves = new PackedMoves(other.moves);
+        this.checkpoints = new ArrayList<>(other.checkpoints);
+    }
+
+    //the first `plies` moves of other
+    private MoveHistory(MoveHistory other, int plies) {
+        this.startTurn = other.startTurn;
+        this.moves = new PackedMoves(Arrays.copyOf(other.moves.packed, plies));
+        this.checkpoints = new ArrayList<>();
+        for (Checkpoint checkpoint : other.checkpoints) {
+            if (checkpoint.ply() <= plies) {
+                this.checkpoints.add(checkpoint);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds a history from its starting position and packed moves, as written by BinaryGameCodec
+     *
+     * @return the history and the board after the last move
+     */
+    static ChessGame rebuild(ChessBoard start, ChessGame.TeamColor startTurn, int[] packedMoves) {
+        MoveHistory history = new MoveHistory(start, startTurn);
+        history.moves = new PackedMoves(packedMoves.clone());
+        ChessBoard board = decodeBoard(history.startBoard());
+        for (int i = 0; i < packedMoves.length; i++) {
+            applyUnchecked(board, unpack(packedMoves[i]));
+            if ((i + 1) % CHECKPOINT_INTERVAL == 0) {
+                history.checkpoints.add(new Checkpoint(i + 1, encodeBoard(board)));
+            }
+        }
+        return new ChessGame(board, history.turnAt(packedMoves.length), history);
+    }
+
+    ChessGame.TeamColor startTurn() {
+        return startTurn;
+    }
+
+    String startBoard() {
+        return checkpoints.get(0).board();
+    }
+
+    int packedMove(int ply) {
+        return moves.get(ply);
+    }
+
+    /**
+     * Adds a move that was just made
+     *
+     * @param move the move
+     * @param after the board with the move applied
+     */
+    public void record(ChessMove move, ChessBoard after) {
+        moves.add(pack(move));
+        if (moves.size % CHECKPOINT_INTERVAL == 0) {
+            checkpoints.add(new Checkpoint(moves.size, encodeBoard(after)));
+        }
+    }
+
+    /**
+     * @return number of plies recorded
+     */
+    public int size() {
+        return moves.size;
+    }
+
+    public ChessMove getMove(int ply) {
+        return unpack(moves.get(ply));
+    }
+
+    public List<ChessMove> getMoves() {
+        List<ChessMove> list = new ArrayList<>(moves.size);
+        for (int ply = 0; ply < moves.size; ply++) {
+            list.add(unpack(moves.packed[ply]));
+        }
+        return list;
+    }
+
+    /**
+     * Rebuilds the game as it was after the given number of plies. The returned game
+     * carries the history up to that point, so it can be played on from there.
+     *
+     * @param ply 0 for the starting position, size() for the current one
+     * @return a new game, the history is not changed
+     */
+    public ChessGame replay(int ply) {
+        if (ply < 0 || ply > moves.size) {
+            throw new IllegalArgumentException("ply " + ply + " is outside 0.." + moves.size);
+        }
+        Checkpoint from = checkpoints.get(0);
+        for (Checkpoint checkpoint : checkpoints) { //in ply order
+            if (checkpoint.ply() > ply) {
+                break;
+            }
+            from = checkpoint;
+        }
+
+        ChessBoard board = decodeBoard(from.board());
+        for (int i = from.ply(); i < ply; i++) {
+            applyUnchecked(board, unpack(moves.packed[i]));
+        }
+        return new ChessGame(board, turnAt(ply), new MoveHistory(this, ply));
+    }
+
+    private ChessGame.TeamColor turnAt(int ply) {
+        if (ply % 2 == 0) {
+            return startTurn;
+        }
+        return startTurn == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+
+    //moves in the history were validated when they were made, so this just moves the piece
+    private static void applyUnchecked(ChessBoard board, ChessMove move) {
+        ChessPiece piece = board.getPiece(move.getStartPosition());
+        if (move.getPromotionPiece() != null) {
+            piece = new ChessPiece(piece.getTeamColor(), move.getPromotionPiece());
+        }
+        board.addPiece(move.getEndPosition(), piece);
+        board.addPiece(move.getStartPosition(), null);
+    }
+
+    static int pack(ChessMove move) {
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        return square(move.getStartPosition())
+                | square(move.getEndPosition()) << SQUARE_BITS
+                | (promotion == null ? 0 : promotion.ordinal() + 1) << (2 * SQUARE_BITS);
+    }
+
+    static ChessMove unpack(int packed) {
+        int promotion = packed >>> (2 * SQUARE_BITS);
+        return new ChessMove(position(packed & SQUARE_MASK), position((packed >>> SQUARE_BITS) & SQUARE_MASK),
+                promotion == 0 ? null : ChessPiece.PieceType.values()[promotion - 1]);
+    }
+
+    private static int square(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + (position.getColumn() - 1);
+    }
+
+    private static ChessPosition position(int square) {
+        return new ChessPosition(square / 8 + 1, square % 8 + 1);
+    }
+
+    //a1 first, row by row. upper case is white, lower case black, '.' empty
+    static String encodeBoard(ChessBoard board) {
+        StringBuilder sb = new StringBuilder(64);
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(position(square));
+            sb.append(piece == null ? EMPTY : symbol(piece));
+        }
+        return sb.toString();
+    }
+
+    static ChessBoard decodeBoard(String encoded) {
+        ChessBoard board = new ChessBoard();
+        for (int square = 0; square < 64; square++) {
+            char c = encoded.charAt(square);
+            if (c != EMPTY) {
+                board.addPiece(position(square), piece(c));
+            }
+        }
+        return board;
+    }
+
+    private static char symbol(ChessPiece piece) {
+        char c = switch (piece.getPieceType()) {
+            case KING -> 'K';
+            case QUEEN -> 'Q';
+            case BISHOP -> 'B';
+            case KNIGHT -> 'N';
+            case ROOK -> 'R';
+            case PAWN -> 'P';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? c : Character.toLowerCase(c);
+    }
+
+    private static ChessPiece piece(char c) {
+        ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        ChessPiece.PieceType type = switch (Character.toUpperCase(c)) {
+            case 'K' -> ChessPiece.PieceType.KING;
+            case 'Q' -> ChessPiece.PieceType.QUEEN;
+            case 'B' -> ChessPiece.PieceType.BISHOP;
+            case 'N' -> ChessPiece.PieceType.KNIGHT;
+            case 'R' -> ChessPiece.PieceType.ROOK;
+            case 'P' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("unknown piece '" + c + "'");
+        };
+        return new ChessPiece(color, type);
+    }
+
+    private record Checkpoint(int ply, String board) {}
+
+    /**
+     * The packed moves, with spare room at the end so recording a move doesn't copy the whole array.
+     * The capacity doubles when it runs out, like ArrayList. Stored as a plain JSON array of just
+     * the moves, so the spare room never ends up in a save.
+     */
+    @JsonAdapter(PackedMoves.Adapter.class)
+    static final class PackedMoves {
+        private int[] packed;
+        private int size;
+
+        PackedMoves(int[] packed) {
+            this.packed = packed;
+            this.size = packed.length;
+        }
+
+        int get(int ply) {
+            if (ply >= size) {
+                throw new IndexOutOfBoundsException("ply " + ply + " of " + size);
+            }
+            return packed[ply];
+        }
+
+        void add(int move) {
+            if (size == packed.length) {
+                packed = Arrays.copyOf(packed, Math.max(CHECKPOINT_INTERVAL, packed.length * 2));
+            }
+            packed[size++] = move;
+        }
+
+        //same spare room as other, so a copy that is about to get a move doesn't have to grow right away
+        PackedMoves(PackedMoves other) {
+            this.packed = other.packed.clone();
+            this.size = other.size;
+        }
+
+        static final class Adapter extends TypeAdapter<PackedMoves> {
+            @Override
+            public void write(JsonWriter out, PackedMoves moves) throws IOException {
+                if (moves == null) {
+                    out.nullValue();
+                    return;
+                }
+                out.beginArray();
+                for (int ply = 0; ply < moves.size; ply++) {
+                    out.value(moves.packed[ply]);
+                }
+                out.endArray();
+            }
+
+            @Override
+            public PackedMoves read(JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                PackedMoves moves = new PackedMoves(new int[0]);
+                in.beginArray();
+                while (in.hasNext()) {
+                    moves.add(in.nextInt());
+                }
+                in.endArray();
+                return moves;
+            }
+        }
+    }
+}
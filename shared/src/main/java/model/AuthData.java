@@ -1,3 +1,12 @@
 package model;
 
-public record AuthData(String authToken, String username) {}
+//expiresAt is epoch millis. Long.MAX_VALUE means the token doesn't expire
+public record AuthData(String authToken, String username, long expiresAt) {
+    public AuthData(String authToken, String username) {
+        this(authToken, username, Long.MAX_VALUE);
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAt <= nowMillis;
+    }
+}
@@ -1,6 +1,209 @@
 package model;
 
 import chess.ChessGame;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game, boolean gameOver) {}
+import java.io.IOException;
+import java.util.Objects;
 
+/**
+ * A game and who is playing it.
+ * <p>
+ * Used to be a record. It's a class so a game read from storage can keep its board as the stored
+ * JSON until someone calls game(); joins, leaves and resigns never look at the board, so they
+ * never pay for parsing it. Accessors, equals and the JSON form are the same as the record's.
+ * version is the stored row this was read from. updates only go through if the row is still at that version.
+ */
+@JsonAdapter(GameData.Adapter.class)
+public final class GameData {
+    private static final Gson GSON = new Gson();
+
+    private final int gameID;
+    private final String whiteUsername;
+    private final String blackUsername;
+    private final String gameName;
+    private final boolean gameOver;
+    private final int version;
+    //exactly one of these is set once there is a board. guarded by this, game is volatile for the fast path
+    private volatile ChessGame game;
+    private String gameJson;
+
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game,
+                    boolean gameOver, int version) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, null, gameOver, version);
+    }
+
+    public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game, boolean gameOver) {
+        this(gameID, whiteUsername, blackUsername, gameName, game, gameOver, 0);
+    }
+
+    private GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game,
+                     String gameJson, boolean gameOver, int version) {
+        this.gameID = gameID;
+        this.whiteUsername = whiteUsername;
+        this.blackUsername = blackUsername;
+        this.gameName = gameName;
+        this.game = game;
+        this.gameJson = gameJson;
+        this.gameOver = gameOver;
+        this.version = version;
+    }
+
+    //board stays as JSON until game() is called. gameJson may be null for a game without a board
+    public static GameData fromStoredGame(int gameID, String whiteUsername, String blackUsername, String gameName,
+                                          String gameJson, boolean gameOver, int version) {
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, null, gameJson, gameOver, version);
+    }
+
+    public int gameID() {
+        return gameID;
+    }
+
+    public String whiteUsername() {
+        return whiteUsername;
+    }
+
+    public String blackUsername() {
+        return blackUsername;
+    }
+
+    public String gameName() {
+        return gameName;
+    }
+
+    public ChessGame game() {
+        ChessGame loaded = game;
+        if (loaded != null) {
+            return loaded;
+        }
+        synchronized (this) {
+            if (game == null && gameJson != null) {
+                game = GSON.fromJson(gameJson, ChessGame.class);
+                gameJson = null; //the object is the real board from now on, it may get changed
+            }
+            return game;
+        }
+    }
+
+    public boolean gameOver() {
+        return gameOver;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    //the board exactly as it was stored, or null once it has been parsed. lets a DAO write it back as is
+    public synchronized String storedGameJson() {
+        return gameJson;
+    }
+
+    //the with methods keep the version, so a changed copy still updates the row it came from.
+    //an unparsed board is passed along unparsed
+    public GameData withPlayers(String newWhite, String newBlack) {
+        synchronized (this) {
+            return new GameData(gameID, newWhite, newBlack, gameName, game, gameJson, gameOver, version);
+        }
+    }
+
+    public GameData withGame(ChessGame newGame, boolean newGameOver) {
+        return new GameData(gameID, whiteUsername, blackUsername, gameName, newGame, null, newGameOver, version);
+    }
+
+    public GameData withGameOver(boolean newGameOver) {
+        synchronized (this) {
+            return new GameData(gameID, whiteUsername, blackUsername, gameName, game, gameJson, newGameOver, version);
+        }
+    }
+
+    public GameData withVersion(int newVersion) {
+        synchronized (this) {
+            return new GameData(gameID, whiteUsername, blackUsername, gameName, game, gameJson, gameOver, newVersion);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GameData other)) {
+            return false;
+        }
+        return gameID == other.gameID && gameOver == other.gameOver && version == other.version &&
+                Objects.equals(whiteUsername, other.whiteUsername) &&
+                Objects.equals(blackUsername, other.blackUsername) &&
+                Objects.equals(gameName, other.gameName) &&
+                Objects.equals(game(), other.game());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gameID, whiteUsername, blackUsername, gameName, game(), gameOver, version);
+    }
+
+    @Override
+    public String toString() {
+        return "GameData[gameID=" + gameID + ", whiteUsername=" + whiteUsername + ", blackUsername=" + blackUsername +
+                ", gameName=" + gameName + ", game=" + game() + ", gameOver=" + gameOver + ", version=" + version + "]";
+    }
+
+    //same fields and names Gson gave the record
+    static class Adapter extends TypeAdapter<GameData> {
+        @Override
+        public void write(JsonWriter out, GameData data) throws IOException {
+            out.beginObject();
+            out.name("gameID").value(data.gameID);
+            out.name("whiteUsername").value(data.whiteUsername);
+            out.name("blackUsername").value(data.blackUsername);
+            out.name("gameName").value(data.gameName);
+            String stored = data.storedGameJson();
+            if (stored != null) {
+                out.name("game").jsonValue(stored); //already the JSON we'd write, no need to parse it just to print it
+            } else {
+                out.name("game");
+                GSON.toJson(data.game(), ChessGame.class, out);
+            }
+            out.name("gameOver").value(data.gameOver);
+            out.name("version").value(data.version);
+            out.endObject();
+        }
+
+        @Override
+        public GameData read(JsonReader in) throws IOException {
+            int gameID = 0;
+            String whiteUsername = null;
+            String blackUsername = null;
+            String gameName = null;
+            ChessGame game = null;
+            boolean gameOver = false;
+            int version = 0;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "gameID" -> gameID = in.nextInt();
+                    case "whiteUsername" -> whiteUsername = in.nextString();
+                    case "blackUsername" -> blackUsername = in.nextString();
+                    case "gameName" -> gameName = in.nextString();
+                    case "game" -> game = GSON.fromJson(in, ChessGame.class);
+                    case "gameOver" -> gameOver = in.nextBoolean();
+                    case "version" -> version = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new GameData(gameID, whiteUsername, blackUsername, gameName, game, gameOver, version);
+        }
+    }
+}
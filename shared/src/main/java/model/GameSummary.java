@@ -0,0 +1,8 @@
+package model;
+
+//what the lobby needs to show a game, no board
+public record GameSummary(int gameID, String whiteUsername, String blackUsername, String gameName, boolean gameOver) {
+    public static GameSummary of(GameData game) {
+        return new GameSummary(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), game.gameOver());
+    }
+}
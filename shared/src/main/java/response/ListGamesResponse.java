@@ -1,7 +1,8 @@
 package response;
 
-import model.GameData;
+import model.GameSummary;
 
 import java.util.List;
 
-public record ListGamesResponse(List<GameData> games) {}
+//nextCursor is null on the last page, otherwise pass it back as ?cursor= to get the next one
+public record ListGamesResponse(List<GameSummary> games, Integer nextCursor) {}
@@ -0,0 +1,159 @@
+package websocket;
+
+import chess.BinaryGameCodec;
+import chess.ChessGame;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.ObserveGameCommand;
+import websocket.commands.UserGameCommand;
+import websocket.messages.ErrorMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveDeltaMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary form of commands and server messages, for clients that connect with /ws?format=binary.
+ * Everyone else keeps sending and getting JSON.
+ * <p>
+ * Each frame starts with a byte for the command or message type (the enum ordinal), followed by
+ * that type's fields in a fixed order. Numbers are big-endian, strings are a length and UTF-8,
+ * and moves and games use BinaryGameCodec. A LOAD_GAME is a few hundred bytes instead of a few
+ * kilobytes of JSON, and a move is 2 bytes.
+ * <pre>
+ * command:      type, gameID (int, -1 for none), authToken (string), MAKE_MOVE only: move
+ * LOAD_GAME:    type, perspective (0 none, 1 white, 2 black), game
+ * ERROR:        type, errorMessage (string)
+ * NOTIFICATION: type, message (string)
+ * MOVE_DELTA:   type, move, ply (int), status (byte), checksum (int)
+ * </pre>
+ */
+public final class BinaryProtocol {
+    private static final int NO_GAME = -1;
+    private static final int NULL_STRING = -1;
+
+    private BinaryProtocol() {
+    }
+
+    public static byte[] encode(UserGameCommand command) {
+        return write(out -> {
+            out.writeByte(command.getCommandType().ordinal());
+            out.writeInt(command.getGameID() == null ? NO_GAME : command.getGameID());
+            writeString(out, command.getAuthToken());
+            if (command instanceof MakeMoveCommand move) {
+                BinaryGameCodec.writeMove(out, move.getMove());
+            }
+        });
+    }
+
+    public static UserGameCommand decodeCommand(byte[] buf, int offset, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buf, offset, length));
+        UserGameCommand.CommandType type = readEnum(in, UserGameCommand.CommandType.values());
+        int gameID = in.readInt();
+        Integer id = gameID == NO_GAME ? null : gameID;
+        String authToken = readString(in);
+        return switch (type) {
+            case MAKE_MOVE -> new MakeMoveCommand(authToken, id, BinaryGameCodec.readMove(in));
+            case OBSERVE -> {
+                if (id == null) {
+                    throw new IOException("OBSERVE without a game");
+                }
+                yield new ObserveGameCommand(authToken, id);
+            }
+            default -> new UserGameCommand(type, authToken, id);
+        };
+    }
+
+    public static byte[] encode(ServerMessage message) {
+        return write(out -> {
+            out.writeByte(message.getServerMessageType().ordinal());
+            switch (message.getServerMessageType()) {
+                case LOAD_GAME -> {
+                    LoadGameMessage load = (LoadGameMessage) message;
+                    out.writeByte(load.getPerspective() == null ? 0 : load.getPerspective().ordinal() + 1);
+                    BinaryGameCodec.writeGame(out, load.getGame());
+                }
+                case ERROR -> writeString(out, ((ErrorMessage) message).getErrorMessage());
+                case NOTIFICATION -> writeString(out, ((NotificationMessage) message).getMessage());
+                case MOVE_DELTA -> {
+                    MoveDeltaMessage delta = (MoveDeltaMessage) message;
+                    BinaryGameCodec.writeMove(out, delta.getMove());
+                    out.writeInt(delta.getPly());
+                    out.writeByte(delta.getStatus().ordinal());
+                    out.writeInt((int) delta.getChecksum());
+                }
+            }
+        });
+    }
+
+    public static ServerMessage decodeMessage(byte[] buf, int offset, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buf, offset, length));
+        ServerMessage.ServerMessageType type = readEnum(in, ServerMessage.ServerMessageType.values());
+        return switch (type) {
+            case LOAD_GAME -> {
+                int perspective = in.readUnsignedByte();
+                ChessGame.TeamColor color = perspective == 0 ? null
+                        : readEnum(perspective - 1, ChessGame.TeamColor.values());
+                yield new LoadGameMessage(BinaryGameCodec.readGame(in), color);
+            }
+            case ERROR -> new ErrorMessage(readString(in));
+            case NOTIFICATION -> new NotificationMessage(readString(in));
+            case MOVE_DELTA -> new MoveDeltaMessage(BinaryGameCodec.readMove(in), in.readInt(),
+                    readEnum(in, MoveDeltaMessage.GameStatus.values()), in.readInt() & 0xFFFFFFFFL);
+        };
+    }
+
+    private interface Writer {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] write(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            writer.writeTo(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); //only writing to memory
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > in.available()) {
+            throw new IOException("bad string length " + length);
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static <E extends Enum<E>> E readEnum(DataInputStream in, E[] values) throws IOException {
+        return readEnum(in.readUnsignedByte(), values);
+    }
+
+    private static <E extends Enum<E>> E readEnum(int ordinal, E[] values) throws IOException {
+        if (ordinal >= values.length) {
+            throw new IOException("unknown " + values[0].getDeclaringClass().getSimpleName() + " " + ordinal);
+        }
+        return values[ordinal];
+    }
+}
@@ -0,0 +1,95 @@
+package websocket.commands;
+
+import chess.ChessMove;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Lets Gson read a UserGameCommand straight into the right subclass, picked by commandType.
+ * <p>
+ * The fields are read once, in whatever order they come, and the command is built at the end, so
+ * there's no JsonObject tree and no second parse of the text. Register it on the Gson that decodes
+ * commands and ask for UserGameCommand.class. Writing isn't changed.
+ */
+public class CommandAdapterFactory implements TypeAdapterFactory {
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != UserGameCommand.class) {
+            return null; //subclasses asked for by name are read the normal way
+        }
+        TypeAdapter<UserGameCommand> delegate = gson.getDelegateAdapter(this, TypeToken.get(UserGameCommand.class));
+        return (TypeAdapter<T>) new Adapter(delegate, gson.getAdapter(ChessMove.class));
+    }
+
+    private static class Adapter extends TypeAdapter<UserGameCommand> {
+        private final TypeAdapter<UserGameCommand> delegate;
+        private final TypeAdapter<ChessMove> moves;
+
+        Adapter(TypeAdapter<UserGameCommand> delegate, TypeAdapter<ChessMove> moves) {
+            this.delegate = delegate;
+            this.moves = moves;
+        }
+
+        @Override
+        public void write(JsonWriter out, UserGameCommand command) throws IOException {
+            delegate.write(out, command);
+        }
+
+        @Override
+        public UserGameCommand read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            UserGameCommand.CommandType type = null;
+            String authToken = null;
+            Integer gameID = null;
+            ChessMove move = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "commandType" -> type = commandType(in.nextString());
+                    case "authToken" -> authToken = in.nextString();
+                    case "gameID" -> gameID = in.nextInt();
+                    case "move" -> move = moves.read(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+
+            if (type == null) {
+                throw new JsonParseException("no commandType");
+            }
+            return switch (type) {
+                case MAKE_MOVE -> new MakeMoveCommand(authToken, gameID, move);
+                //without a gameID it's left as a plain command, which gets turned away before it's dispatched
+                case OBSERVE -> gameID == null ? new UserGameCommand(type, authToken, null)
+                        : new ObserveGameCommand(authToken, gameID);
+                default -> new UserGameCommand(type, authToken, gameID);
+            };
+        }
+
+        private static UserGameCommand.CommandType commandType(String name) {
+            try {
+                return UserGameCommand.CommandType.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException("unknown commandType " + name);
+            }
+        }
+    }
+}
@@ -25,7 +25,8 @@ public class UserGameCommand {
         MAKE_MOVE,
         LEAVE,
         RESIGN,
-        OBSERVE
+        OBSERVE,
+        RESYNC //asks for a fresh LOAD_GAME, e.g. after a MOVE_DELTA didn't add up
     }
 
     public CommandType getCommandType() {
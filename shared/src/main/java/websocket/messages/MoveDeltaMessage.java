@@ -0,0 +1,47 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+/**
+ * Just the move, for clients that keep their own copy of the game. A few dozen bytes instead of the whole board.
+ * ply is how many moves the game has after this one; a client that is not at ply - 1 missed something.
+ * checksum is ChessGame.positionChecksum() after the move. If the client's copy doesn't match it sends RESYNC.
+ */
+public class MoveDeltaMessage extends ServerMessage {
+    private final ChessMove move;
+    private final int ply;
+    private final GameStatus status;
+    private final long checksum;
+
+    public enum GameStatus {
+        IN_PROGRESS,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        OVER //ended some other way, e.g. a resignation
+    }
+
+    public MoveDeltaMessage(ChessMove move, int ply, GameStatus status, long checksum) {
+        super(ServerMessageType.MOVE_DELTA);
+        this.move = move;
+        this.ply = ply;
+        this.status = status;
+        this.checksum = checksum;
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+}
@@ -14,7 +14,8 @@ public class ServerMessage {
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        MOVE_DELTA //only to clients that asked for deltas, see MoveDeltaMessage
     }
 
     public ServerMessage(ServerMessageType type) {